@@ -0,0 +1,409 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   ChainAnalysis.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 17:05:12 2026
+ *
+ * @brief  Aliphatic chains as diameters of the acyclic carbon skeleton.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech.analysis;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Computes the aliphatic chains of a molecule without searching for longest
+ * paths in a general graph.
+ *
+ * <p>The skeleton consists of the carbon atoms that are not in a ring. Ring
+ * atoms are found from the bridges of the molecule in one depth first
+ * search, so the skeleton is a forest. The longest path in a tree is its
+ * diameter, which two breadth first searches find in linear time. Chains
+ * are extracted greedily: the diameter of every tree is a chain, and the
+ * remaining branches are again trees that are treated the same way. Every
+ * round is linear in the size of its tree and the trees of a round are
+ * disjoint, so the analysis takes O(n d) time for n skeleton atoms and
+ * branches nested d deep, and O(n^2) in the worst case. Ties between paths
+ * of equal length go to the end atoms of lowest index.
+ *
+ * <p>Chains are returned in numbering order, chosen as the position
+ * computation chooses it: substituents get the lowest locants, then
+ * multiple bonds, compared at the first point of difference. If both
+ * directions are equal the chain starts at its end of lower index.
+ */
+public final class ChainAnalysis {
+
+  /** Chains shorter than this number of carbon atoms are ignored. */
+  public static final int MINIMUM_LENGTH = 3;
+
+  private final IndexedStructure structure;
+  private final int minimum;
+  private final BitSet ringAtoms = new BitSet();
+  private final BitSet skeleton = new BitSet();
+  private final List<int[]> chains = new ArrayList<>();
+  private final int[] distance;
+  private final int[] parent;
+  private final int[] queue;
+
+
+  /**
+   * Computes the aliphatic chains of a molecule.
+   *
+   * @param molecule
+   *          The molecule.
+   */
+  public ChainAnalysis(final IAtomContainer molecule) {
+    this(new IndexedStructure(molecule));
+  }
+
+
+  /**
+   * Computes the aliphatic chains of an indexed molecule.
+   *
+   * @param structure
+   *          The indexed molecule.
+   */
+  public ChainAnalysis(final IndexedStructure structure) {
+    this(structure, MINIMUM_LENGTH);
+  }
+
+
+  /**
+   * Computes the aliphatic chains of an indexed molecule.
+   *
+   * @param structure
+   *          The indexed molecule.
+   * @param minimum
+   *          The minimum number of atoms of a chain.
+   */
+  public ChainAnalysis(final IndexedStructure structure,
+      final int minimum) {
+    this.structure = structure;
+    this.minimum = minimum;
+    final int atoms = structure.getAtomCount();
+    this.distance = new int[atoms];
+    this.parent = new int[atoms];
+    this.queue = new int[atoms];
+    this.rings();
+    for (int u = 0; u < atoms; u++) {
+      if (!this.ringAtoms.get(u) && "C".equals(
+              structure.getMolecule().getAtom(u).getSymbol())) {
+        this.skeleton.set(u);
+      }
+    }
+    this.extract();
+  }
+
+
+  /**
+   * Marks the atoms in rings, i.e., those with a bond that is not a bridge.
+   * Bridges are found by an iterative depth first search comparing
+   * discovery times with the lowest time reachable over a back edge.
+   */
+  private void rings() {
+    final IndexedStructure graph = this.structure;
+    final int atoms = graph.getAtomCount();
+    final int[] discovery = new int[atoms];
+    final int[] low = new int[atoms];
+    final int[] via = new int[atoms];
+    final int[] next = new int[atoms];
+    final int[] stack = new int[atoms];
+    int time = 0;
+    for (int root = 0; root < atoms; root++) {
+      if (discovery[root] != 0) {
+        continue;
+      }
+      int top = 0;
+      stack[top] = root;
+      via[root] = -1;
+      discovery[root] = low[root] = ++time;
+      while (top >= 0) {
+        final int u = stack[top];
+        if (next[u] < graph.degree(u)) {
+          final int k = next[u]++;
+          final int v = graph.neighbour(u, k);
+          final int edge = graph.edge(u, k);
+          if (edge == via[u]) {
+            continue;
+          }
+          if (discovery[v] == 0) {
+            via[v] = edge;
+            discovery[v] = low[v] = ++time;
+            stack[++top] = v;
+          } else {
+            low[u] = Math.min(low[u], discovery[v]);
+          }
+          continue;
+        }
+        top--;
+        if (top >= 0) {
+          final int w = stack[top];
+          low[w] = Math.min(low[w], low[u]);
+          if (low[u] <= discovery[w]) {
+            this.ringAtoms.set(u);
+            this.ringAtoms.set(w);
+          }
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Extracts chains from the skeleton until all remaining trees are too
+   * short.
+   */
+  private void extract() {
+    final BitSet remaining = (BitSet) this.skeleton.clone();
+    final Deque<Integer> trees = new ArrayDeque<>();
+    for (int u = remaining.nextSetBit(0); u >= 0;
+         u = remaining.nextSetBit(u + 1)) {
+      trees.add(u);
+    }
+    while (!trees.isEmpty()) {
+      final int start = trees.poll();
+      if (!remaining.get(start)) {
+        continue;
+      }
+      final int first = this.farthest(start, remaining);
+      final int size = this.search(first, remaining);
+      final int last = this.farthest(size);
+      final int length = this.distance[last] + 1;
+      if (length < this.minimum) {
+        for (int i = 0; i < size; i++) {
+          remaining.clear(this.queue[i]);
+        }
+        continue;
+      }
+      final int[] chain = new int[length];
+      for (int i = 0, u = last; i < length; i++, u = this.parent[u]) {
+        chain[i] = u;
+      }
+      this.chains.add(this.number(chain));
+      for (final int u : chain) {
+        remaining.clear(u);
+      }
+      for (final int u : chain) {
+        for (int k = 0; k < this.structure.degree(u); k++) {
+          final int v = this.structure.neighbour(u, k);
+          if (remaining.get(v)) {
+            trees.add(v);
+          }
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Orders a chain in its numbering direction.
+   *
+   * @param chain
+   *          The chain in path order.
+   *
+   * @return The chain, reversed if the other direction numbers it better.
+   */
+  private int[] number(final int[] chain) {
+    final int length = chain.length;
+    final IndexedStructure graph = this.structure;
+    final List<Integer> substituents = new ArrayList<>();
+    final List<Integer> multipleBonds = new ArrayList<>();
+    for (int i = 0; i < length; i++) {
+      final int u = chain[i];
+      for (int k = 0; k < graph.degree(u); k++) {
+        final int v = graph.neighbour(u, k);
+        if ((i == 0 || v != chain[i - 1])
+            && (i == length - 1 || v != chain[i + 1])
+            && !"H".equals(graph.getMolecule().getAtom(v).getSymbol())) {
+          substituents.add(i);
+        }
+      }
+      if (i < length - 1 && graph.getMolecule().getBond(
+              graph.bond(u, chain[i + 1])).getOrder() != IBond.Order.SINGLE) {
+        multipleBonds.add(i);
+      }
+    }
+    int compare = compareLocants(substituents, length, 1);
+    if (compare == 0) {
+      compare = compareLocants(multipleBonds, length, 2);
+    }
+    if (compare > 0 || compare == 0 && chain[0] > chain[length - 1]) {
+      for (int i = 0; i < length / 2; i++) {
+        final int swap = chain[i];
+        chain[i] = chain[length - 1 - i];
+        chain[length - 1 - i] = swap;
+      }
+    }
+    return chain;
+  }
+
+
+  /**
+   * Compares the locants of a chain numbered forward and backward at the
+   * first point of difference.
+   *
+   * @param positions
+   *          The positions of the features in path order, ascending.
+   * @param length
+   *          The length of the chain.
+   * @param span
+   *          The number of atoms a feature spans, the lowest of which is
+   *          its locant.
+   *
+   * @return Negative if numbering forward gives lower locants, positive if
+   *     numbering backward does, 0 otherwise.
+   */
+  private static int compareLocants(final List<Integer> positions,
+      final int length, final int span) {
+    final int size = positions.size();
+    for (int i = 0; i < size; i++) {
+      final int forward = positions.get(i) + 1;
+      final int backward = length + 1 - span - positions.get(size - 1 - i);
+      if (forward != backward) {
+        return forward - backward;
+      }
+    }
+    return 0;
+  }
+
+
+  /**
+   * @param start
+   *          An atom of a tree.
+   * @param remaining
+   *          The atoms of the forest.
+   *
+   * @return The atom of the tree farthest from the start.
+   */
+  private int farthest(final int start, final BitSet remaining) {
+    return this.farthest(this.search(start, remaining));
+  }
+
+
+  /**
+   * @param size
+   *          The number of atoms visited by the last search.
+   *
+   * @return The visited atom of greatest distance and lowest index.
+   */
+  private int farthest(final int size) {
+    int result = this.queue[0];
+    for (int i = 1; i < size; i++) {
+      final int u = this.queue[i];
+      if (this.distance[u] > this.distance[result]
+          || this.distance[u] == this.distance[result] && u < result) {
+        result = u;
+      }
+    }
+    return result;
+  }
+
+
+  /**
+   * Breadth first search in a tree of the forest, recording distances and
+   * parents. The visited atoms are left in the queue.
+   *
+   * @param start
+   *          The atom to start from.
+   * @param remaining
+   *          The atoms of the forest.
+   *
+   * @return The number of atoms visited.
+   */
+  private int search(final int start, final BitSet remaining) {
+    final IndexedStructure graph = this.structure;
+    int head = 0;
+    int tail = 0;
+    this.queue[tail++] = start;
+    this.distance[start] = 0;
+    this.parent[start] = -1;
+    while (head < tail) {
+      final int u = this.queue[head++];
+      for (int k = 0; k < graph.degree(u); k++) {
+        final int v = graph.neighbour(u, k);
+        if (v != this.parent[u] && remaining.get(v)) {
+          this.distance[v] = this.distance[u] + 1;
+          this.parent[v] = u;
+          this.queue[tail++] = v;
+        }
+      }
+    }
+    return tail;
+  }
+
+
+  /**
+   * @return The indexed molecule.
+   */
+  public IndexedStructure getStructure() {
+    return this.structure;
+  }
+
+
+  /**
+   * @return The indices of the atoms in rings.
+   */
+  public BitSet getRingAtoms() {
+    return this.ringAtoms;
+  }
+
+
+  /**
+   * @return The indices of the carbon atoms not in rings.
+   */
+  public BitSet getSkeleton() {
+    return this.skeleton;
+  }
+
+
+  /**
+   * @return The chains as arrays of atom indices in path order, longest
+   *     chain of every tree first.
+   */
+  public List<int[]> getChains() {
+    return this.chains;
+  }
+
+
+  /**
+   * @return The atom identifiers of the chains in path order.
+   */
+  public List<List<String>> getChainIds() {
+    final List<List<String>> result = new ArrayList<>(this.chains.size());
+    for (final int[] chain : this.chains) {
+      final List<String> ids = new ArrayList<>(chain.length);
+      for (final int u : chain) {
+        ids.add(this.structure.atomId(u));
+      }
+      result.add(ids);
+    }
+    return result;
+  }
+
+}
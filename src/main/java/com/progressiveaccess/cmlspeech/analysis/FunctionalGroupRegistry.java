@@ -0,0 +1,382 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   FunctionalGroupRegistry.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 11:32:19 2026
+ *
+ * @brief  Process-wide registry of compiled functional group patterns.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech.analysis;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.smiles.smarts.SmartsPattern;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Registry of functional group patterns, parsed and compiled once per
+ * process.
+ *
+ * <p>Pattern files contain lines of the form {@code Name: SMARTS}; comment
+ * lines start with {@code #}. Each compiled pattern carries a
+ * {@link SmartsPrerequisite}, which is checked against a profile of the
+ * molecule before the expensive subgraph isomorphism is run.
+ */
+public final class FunctionalGroupRegistry {
+
+  /** The functional group patterns. */
+  public static final String SMARTS = "/smarts/smarts-pattern.txt";
+
+  /** The patterns from the Daylight SMARTS examples. */
+  public static final String DAYLIGHT = "/smarts/daylight-pattern.txt";
+
+  private static final int TASK_SIZE = 32;
+
+  private static final Map<String, FunctionalGroupRegistry> REGISTRIES =
+      new ConcurrentHashMap<>();
+
+  private final List<Group> groups = new ArrayList<>();
+  private final List<String> errors = new ArrayList<>();
+
+
+  /**
+   * Returns the registry for a pattern resource, compiling it on first use.
+   *
+   * @param resource
+   *          The classpath resource containing the patterns.
+   *
+   * @return The registry.
+   */
+  public static FunctionalGroupRegistry getInstance(final String resource) {
+    return REGISTRIES.computeIfAbsent(resource, FunctionalGroupRegistry::new);
+  }
+
+
+  /**
+   * @return The registry for the default functional group patterns.
+   */
+  public static FunctionalGroupRegistry getInstance() {
+    return getInstance(SMARTS);
+  }
+
+
+  /**
+   * Loads and compiles the patterns of a resource.
+   *
+   * @param resource
+   *          The classpath resource containing the patterns.
+   */
+  private FunctionalGroupRegistry(final String resource) {
+    final InputStream stream =
+        FunctionalGroupRegistry.class.getResourceAsStream(resource);
+    if (stream == null) {
+      this.errors.add("Pattern file " + resource + " not found.");
+      return;
+    }
+    try (BufferedReader reader = new BufferedReader(
+             new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        this.addGroup(line.trim());
+      }
+    } catch (final IOException e) {
+      this.errors.add("Error reading " + resource + ": " + e.getMessage());
+    }
+  }
+
+
+  /**
+   * Parses and compiles a single line of a pattern file.
+   *
+   * @param line
+   *          The line.
+   */
+  private void addGroup(final String line) {
+    if (line.isEmpty() || line.startsWith("#")) {
+      return;
+    }
+    final int colon = line.lastIndexOf(": ");
+    if (colon < 0) {
+      this.errors.add("Malformed pattern line: " + line);
+      return;
+    }
+    final String name = line.substring(0, colon).trim();
+    final String smarts = line.substring(colon + 2).trim();
+    try {
+      this.groups.add(new Group(name, smarts, SmartsPattern.create(
+          smarts, SilentChemObjectBuilder.getInstance())));
+    } catch (final IOException | IllegalArgumentException e) {
+      this.errors.add("Pattern " + name + " not compiled: " + e.getMessage());
+    }
+  }
+
+
+  /**
+   * @return The compiled groups in file order.
+   */
+  public List<Group> getGroups() {
+    return Collections.unmodifiableList(this.groups);
+  }
+
+
+  /**
+   * @return Messages for lines that could not be read or compiled.
+   */
+  public List<String> getErrors() {
+    return Collections.unmodifiableList(this.errors);
+  }
+
+
+  /**
+   * Matches all patterns against a molecule. Patterns whose prerequisites
+   * the molecule does not satisfy are skipped without matching.
+   *
+   * @param molecule
+   *          The molecule.
+   *
+   * @return For all matching groups by name, in file order, the unique
+   *     matches as the indices of the molecule's atoms in pattern order.
+   */
+  public Map<String, int[][]> match(final IAtomContainer molecule) {
+    final int[][][] matches = new int[this.groups.size()][][];
+    this.matchRange(molecule, new SmartsPrerequisite.Profile(molecule),
+                    matches, 0, matches.length);
+    return this.collect(matches);
+  }
+
+
+  /**
+   * Matches all patterns against a molecule on a fork-join pool. The
+   * patterns are split into ranges, each matched against its own copy of
+   * the molecule, as matching sets ring and aromaticity flags on the
+   * target. Atom indices are the same in the copy and in the molecule, so
+   * the result equals that of {@link #match(IAtomContainer)}.
+   *
+   * @param molecule
+   *          The molecule.
+   * @param pool
+   *          The pool to run on.
+   *
+   * @return For all matching groups by name, in file order, the unique
+   *     matches as the indices of the molecule's atoms in pattern order.
+   */
+  public Map<String, int[][]> match(final IAtomContainer molecule,
+      final ForkJoinPool pool) {
+    final int[][][] matches = new int[this.groups.size()][][];
+    pool.invoke(new MatchTask(molecule,
+                              new SmartsPrerequisite.Profile(molecule),
+                              matches, 0, matches.length));
+    return this.collect(matches);
+  }
+
+
+  /**
+   * Matches a range of patterns against a molecule. Patterns whose
+   * prerequisites the molecule does not satisfy are skipped without
+   * matching. The mappings of CDK are lazy and rematch on every iteration,
+   * against target flags the next pattern may set differently, so each is
+   * enumerated before the next pattern is matched.
+   *
+   * @param molecule
+   *          The molecule.
+   * @param profile
+   *          The profile of the molecule.
+   * @param matches
+   *          Array to store the unique matches of matching groups by
+   *          position.
+   * @param from
+   *          The first pattern of the range.
+   * @param to
+   *          The end of the range, exclusive.
+   */
+  private void matchRange(final IAtomContainer molecule,
+      final SmartsPrerequisite.Profile profile, final int[][][] matches,
+      final int from, final int to) {
+    for (int i = from; i < to; i++) {
+      final Group group = this.groups.get(i);
+      if (!group.getPrerequisite().admits(profile)) {
+        continue;
+      }
+      final int[][] unique =
+          group.getPattern().matchAll(molecule).uniqueAtoms().toArray();
+      if (unique.length > 0) {
+        matches[i] = unique;
+      }
+    }
+  }
+
+
+  /**
+   * @param matches
+   *          The unique matches of matching groups by position.
+   *
+   * @return The unique matches by group name, in file order.
+   */
+  private Map<String, int[][]> collect(final int[][][] matches) {
+    final Map<String, int[][]> result = new LinkedHashMap<>();
+    for (int i = 0; i < matches.length; i++) {
+      if (matches[i] != null) {
+        result.put(this.groups.get(i).getName(), matches[i]);
+      }
+    }
+    return result;
+  }
+
+
+  /**
+   * Matches a range of patterns, splitting it while it is large.
+   */
+  private final class MatchTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final IAtomContainer molecule;
+    private final SmartsPrerequisite.Profile profile;
+    private final int[][][] matches;
+    private final int from;
+    private final int to;
+
+
+    /**
+     * @param molecule
+     *          The molecule.
+     * @param profile
+     *          The profile of the molecule.
+     * @param matches
+     *          Array to store the unique matches of matching groups by
+     *          position.
+     * @param from
+     *          The first pattern of the range.
+     * @param to
+     *          The end of the range, exclusive.
+     */
+    private MatchTask(final IAtomContainer molecule,
+        final SmartsPrerequisite.Profile profile, final int[][][] matches,
+        final int from, final int to) {
+      this.molecule = molecule;
+      this.profile = profile;
+      this.matches = matches;
+      this.from = from;
+      this.to = to;
+    }
+
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from > TASK_SIZE) {
+        final int middle = (this.from + this.to) >>> 1;
+        invokeAll(new MatchTask(this.molecule, this.profile, this.matches,
+                                this.from, middle),
+                  new MatchTask(this.molecule, this.profile, this.matches,
+                                middle, this.to));
+        return;
+      }
+      try {
+        FunctionalGroupRegistry.this.matchRange(
+            this.molecule.clone(), this.profile, this.matches,
+            this.from, this.to);
+      } catch (final CloneNotSupportedException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+  }
+
+
+  /**
+   * A compiled functional group pattern.
+   */
+  public static final class Group {
+
+    private final String name;
+    private final String smarts;
+    private final SmartsPattern pattern;
+    private final SmartsPrerequisite prerequisite;
+
+
+    /**
+     * Constructs a group.
+     *
+     * @param name
+     *          The name of the group.
+     * @param smarts
+     *          The SMARTS string.
+     * @param pattern
+     *          The compiled pattern.
+     */
+    private Group(final String name, final String smarts,
+        final SmartsPattern pattern) {
+      this.name = name;
+      this.smarts = smarts;
+      this.pattern = pattern;
+      this.prerequisite = new SmartsPrerequisite(smarts);
+    }
+
+
+    /**
+     * @return The name of the group.
+     */
+    public String getName() {
+      return this.name;
+    }
+
+
+    /**
+     * @return The SMARTS string.
+     */
+    public String getSmarts() {
+      return this.smarts;
+    }
+
+
+    /**
+     * @return The compiled pattern.
+     */
+    public SmartsPattern getPattern() {
+      return this.pattern;
+    }
+
+
+    /**
+     * @return The prerequisites for the pattern to match.
+     */
+    public SmartsPrerequisite getPrerequisite() {
+      return this.prerequisite;
+    }
+
+  }
+
+}
@@ -0,0 +1,363 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   FusedRingAnalysis.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 12:21:37 2026
+ *
+ * @brief  Single pass analysis of fused ring systems.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech.analysis;
+
+import org.openscience.cdk.graph.Cycles;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import javax.vecmath.Point2d;
+
+/**
+ * Computes the sub-rings, rim, shared bonds and bridge atoms of a fused ring
+ * system in one pass.
+ *
+ * <p>The sub-rings are the smallest set of smallest rings, computed as a
+ * minimum cycle basis in polynomial time. Every ring edge is then counted in
+ * an indexed ring-bond incidence array: bonds in more than one ring are
+ * shared, and the end points of shared bonds are bridge atoms.
+ *
+ * <p>The rim is the outer boundary of the depiction. It is found by walking
+ * the outer face of every connected ring system, starting at its leftmost
+ * atom and always turning to the next ring bond counterclockwise. This
+ * leaves out the inner boundary of systems with holes, such as kekulene,
+ * and follows the depiction for bridged systems, where the sub-rings do not
+ * determine which bridge is outside. Without 2D coordinates, or if the walk
+ * does not close because bonds overlap, the rim falls back to the atoms of
+ * bonds in exactly one sub-ring, which is the outer boundary only for
+ * ortho- and peri-fused systems without holes.
+ *
+ * <p>Apart from the cycle basis the analysis is linear in the size of the
+ * system. It works on an {@link IndexedStructure}; identifiers are only
+ * looked up when requested.
+ */
+public final class FusedRingAnalysis {
+
+  private final IndexedStructure structure;
+  private final int[] ringCount;
+  private final List<int[]> rings = new ArrayList<>();
+  private final BitSet rim = new BitSet();
+  private final BitSet sharedBonds = new BitSet();
+  private final BitSet bridgeAtoms = new BitSet();
+
+
+  /**
+   * Analyses a fused ring system. Atoms and bonds not in any ring, such as
+   * substituents, are ignored.
+   *
+   * @param system
+   *          The ring system.
+   */
+  public FusedRingAnalysis(final IAtomContainer system) {
+    this(new IndexedStructure(system));
+  }
+
+
+  /**
+   * Analyses a fused ring system given as an indexed structure.
+   *
+   * @param structure
+   *          The indexed ring system.
+   */
+  public FusedRingAnalysis(final IndexedStructure structure) {
+    this.structure = structure;
+    this.ringCount = new int[structure.getBondCount()];
+    this.analyse();
+  }
+
+
+  /**
+   * Computes the rings and counts ring membership of every bond.
+   */
+  private void analyse() {
+    final IndexedStructure graph = this.structure;
+    for (final int[] path : Cycles.sssr(graph.getMolecule()).paths()) {
+      final int[] ring = Arrays.copyOf(path, path.length - 1);
+      this.rings.add(ring);
+      for (int i = 0; i < ring.length; i++) {
+        this.ringCount[graph.bond(ring[i], ring[(i + 1) % ring.length])]++;
+      }
+    }
+    final BitSet ringAtoms = new BitSet();
+    for (int u = 0; u < graph.getAtomCount(); u++) {
+      for (int k = 0; k < graph.degree(u); k++) {
+        final int edge = graph.edge(u, k);
+        if (this.ringCount[edge] > 0) {
+          ringAtoms.set(u);
+        }
+        if (this.ringCount[edge] > 1) {
+          this.sharedBonds.set(edge);
+          this.bridgeAtoms.set(u);
+        }
+      }
+    }
+    if (!this.hasCoordinates(ringAtoms) || !this.outerRims(ringAtoms)) {
+      this.rim.clear();
+      for (int u = ringAtoms.nextSetBit(0); u >= 0;
+           u = ringAtoms.nextSetBit(u + 1)) {
+        for (int k = 0; k < graph.degree(u); k++) {
+          if (this.ringCount[graph.edge(u, k)] == 1) {
+            this.rim.set(u);
+          }
+        }
+      }
+    }
+  }
+
+
+  /**
+   * @param atoms
+   *          Indices of atoms.
+   *
+   * @return True if all the atoms have 2D coordinates.
+   */
+  private boolean hasCoordinates(final BitSet atoms) {
+    for (int u = atoms.nextSetBit(0); u >= 0; u = atoms.nextSetBit(u + 1)) {
+      if (this.point(u) == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+
+  /**
+   * Walks the outer face of every connected ring system, starting from its
+   * leftmost atom, and adds the atoms passed to the rim.
+   *
+   * @param ringAtoms
+   *          The atoms with a ring bond.
+   *
+   * @return True if all walks closed.
+   */
+  private boolean outerRims(final BitSet ringAtoms) {
+    final IndexedStructure graph = this.structure;
+    final BitSet unvisited = (BitSet) ringAtoms.clone();
+    final int[] queue = new int[graph.getAtomCount()];
+    for (int root = unvisited.nextSetBit(0); root >= 0;
+         root = unvisited.nextSetBit(root + 1)) {
+      int head = 0;
+      int tail = 0;
+      queue[tail++] = root;
+      unvisited.clear(root);
+      int leftmost = root;
+      while (head < tail) {
+        final int u = queue[head++];
+        final Point2d point = this.point(u);
+        final Point2d left = this.point(leftmost);
+        if (point.x < left.x || point.x == left.x && point.y < left.y) {
+          leftmost = u;
+        }
+        for (int k = 0; k < graph.degree(u); k++) {
+          final int v = graph.neighbour(u, k);
+          if (this.ringCount[graph.edge(u, k)] > 0 && unvisited.get(v)) {
+            unvisited.clear(v);
+            queue[tail++] = v;
+          }
+        }
+      }
+      if (!this.walkRim(leftmost)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+
+  /**
+   * Walks the outer face of a ring system and adds its atoms to the rim.
+   * Every step arrives at an atom and leaves it by the ring bond that comes
+   * next counterclockwise from the bond it arrived by. The walk starts as
+   * if arriving from the left, which lies outside the system, and ends
+   * when it is about to repeat its first step.
+   *
+   * @param start
+   *          The leftmost atom of the system.
+   *
+   * @return True if the walk closed within one step per bond direction.
+   */
+  private boolean walkRim(final int start) {
+    final int first = this.turn(start, Math.PI);
+    int from = start;
+    int to = first;
+    for (int steps = 2 * this.ringCount.length; steps > 0; steps--) {
+      this.rim.set(to);
+      final int next = this.turn(to, this.angle(to, from));
+      from = to;
+      to = next;
+      if (from == start && to == first) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+
+  /**
+   * @param atom
+   *          The index of a ring atom.
+   * @param reference
+   *          The angle of the direction to turn from.
+   *
+   * @return The ring neighbour that comes first when turning
+   *     counterclockwise from the direction, which is reached last.
+   */
+  private int turn(final int atom, final double reference) {
+    final IndexedStructure graph = this.structure;
+    int result = -1;
+    double smallest = Double.POSITIVE_INFINITY;
+    for (int k = 0; k < graph.degree(atom); k++) {
+      if (this.ringCount[graph.edge(atom, k)] == 0) {
+        continue;
+      }
+      final int v = graph.neighbour(atom, k);
+      double rotation = this.angle(atom, v) - reference;
+      while (rotation <= 0) {
+        rotation += 2 * Math.PI;
+      }
+      while (rotation > 2 * Math.PI) {
+        rotation -= 2 * Math.PI;
+      }
+      if (rotation < smallest) {
+        smallest = rotation;
+        result = v;
+      }
+    }
+    return result;
+  }
+
+
+  /**
+   * @param from
+   *          The index of an atom.
+   * @param to
+   *          The index of another atom.
+   *
+   * @return The angle of the direction from the first to the second atom.
+   */
+  private double angle(final int from, final int to) {
+    final Point2d source = this.point(from);
+    final Point2d target = this.point(to);
+    return Math.atan2(target.y - source.y, target.x - source.x);
+  }
+
+
+  /**
+   * @param atom
+   *          The index of an atom.
+   *
+   * @return The 2D coordinates of the atom, or null.
+   */
+  private Point2d point(final int atom) {
+    return this.structure.getMolecule().getAtom(atom).getPoint2d();
+  }
+
+
+  /**
+   * @return The indexed ring system.
+   */
+  public IndexedStructure getStructure() {
+    return this.structure;
+  }
+
+
+  /**
+   * @return The smallest set of smallest rings as arrays of atom indices in
+   *     ring order.
+   */
+  public List<int[]> getRings() {
+    return this.rings;
+  }
+
+
+  /**
+   * @return The indices of the atoms on the outer boundary of the system.
+   */
+  public BitSet getRim() {
+    return this.rim;
+  }
+
+
+  /**
+   * @return The indices of the bonds shared between sub-rings.
+   */
+  public BitSet getSharedBonds() {
+    return this.sharedBonds;
+  }
+
+
+  /**
+   * @return The indices of the atoms at the ends of shared bonds.
+   */
+  public BitSet getBridgeAtoms() {
+    return this.bridgeAtoms;
+  }
+
+
+  /**
+   * @param bond
+   *          The index of a bond.
+   *
+   * @return The number of sub-rings containing the bond.
+   */
+  public int getRingCount(final int bond) {
+    return this.ringCount[bond];
+  }
+
+
+  /**
+   * Maps atom indices to atom identifiers.
+   *
+   * @param atoms
+   *          The atom indices.
+   *
+   * @return The list of identifiers.
+   */
+  public List<String> atomIds(final BitSet atoms) {
+    return this.structure.atomIds(atoms);
+  }
+
+
+  /**
+   * Maps bond indices to bond identifiers.
+   *
+   * @param bonds
+   *          The bond indices.
+   *
+   * @return The list of identifiers.
+   */
+  public List<String> bondIds(final BitSet bonds) {
+    return this.structure.bondIds(bonds);
+  }
+
+}
@@ -0,0 +1,256 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   HydrogenCollapser.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 21:24:06 2026
+ *
+ * @brief  Folds explicit hydrogen atoms into implicit counts.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech.analysis;
+
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.interfaces.IStereoElement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Preprocessing stage that removes explicit hydrogen atoms from a molecule
+ * and adds them to the implicit hydrogen count of the atom they are bonded
+ * to.
+ *
+ * <p>Inputs drawn with explicit hydrogens have several times more atoms and
+ * bonds than their heavy atom skeleton, and every analysis stage pays for
+ * them. The collapsed molecule is a copy; the input is not changed. Atoms
+ * and bonds keep their identifiers, and those without one are named a1,
+ * a2, ... and b1, b2, ... by position as in {@link IndexedStructure}. For
+ * every heavy atom the identifiers of its folded hydrogens and their bonds
+ * are kept, so they can be attached again in the output.
+ *
+ * <p>Only hydrogens that carry no information of their own are folded: a
+ * hydrogen is kept if it is an isotope other than protium, is charged, is
+ * bonded to another hydrogen, has other than one single bond, or takes
+ * part in a stereo element.
+ */
+public final class HydrogenCollapser {
+
+  private final IAtomContainer molecule;
+  private final IAtomContainer collapsed;
+  private final Map<String, List<String>> hydrogens = new HashMap<>();
+  private final Map<String, List<String>> bonds = new HashMap<>();
+  private final Map<String, String> heavyAtoms = new HashMap<>();
+
+
+  /**
+   * Collapses the explicit hydrogens of a molecule.
+   *
+   * @param molecule
+   *          The molecule.
+   */
+  public HydrogenCollapser(final IAtomContainer molecule) {
+    this.molecule = molecule;
+    IAtomContainer copy;
+    try {
+      copy = molecule.clone();
+    } catch (final CloneNotSupportedException e) {
+      throw new IllegalStateException(e);
+    }
+    for (int i = 0; i < copy.getAtomCount(); i++) {
+      if (copy.getAtom(i).getID() == null) {
+        copy.getAtom(i).setID("a" + (i + 1));
+      }
+    }
+    for (int i = 0; i < copy.getBondCount(); i++) {
+      if (copy.getBond(i).getID() == null) {
+        copy.getBond(i).setID("b" + (i + 1));
+      }
+    }
+    final Set<IAtom> stereo = identitySet();
+    for (final IStereoElement element : copy.stereoElements()) {
+      for (final IAtom atom : copy.atoms()) {
+        if ("H".equals(atom.getSymbol()) && element.contains(atom)) {
+          stereo.add(atom);
+        }
+      }
+    }
+    final Map<IAtom, IBond> single = new IdentityHashMap<>();
+    final Set<IAtom> kept = identitySet();
+    for (final IBond bond : copy.bonds()) {
+      for (final IAtom atom : bond.atoms()) {
+        if (!"H".equals(atom.getSymbol()) || kept.contains(atom)) {
+          continue;
+        }
+        if (single.containsKey(atom) || bond.getAtomCount() != 2
+            || bond.getOrder() != IBond.Order.SINGLE
+            || "H".equals(bond.getConnectedAtom(atom).getSymbol())) {
+          single.remove(atom);
+          kept.add(atom);
+        } else {
+          single.put(atom, bond);
+        }
+      }
+    }
+    this.collapsed = copy.getBuilder().newInstance(IAtomContainer.class);
+    this.collapsed.setID(copy.getID());
+    this.collapsed.setProperties(copy.getProperties());
+    final Set<IBond> folded = identitySet();
+    for (final IAtom atom : copy.atoms()) {
+      final IBond bond = single.get(atom);
+      if (bond == null || !this.foldable(atom) || stereo.contains(atom)) {
+        this.collapsed.addAtom(atom);
+        continue;
+      }
+      folded.add(bond);
+      final IAtom heavy = bond.getConnectedAtom(atom);
+      final Integer count = heavy.getImplicitHydrogenCount();
+      heavy.setImplicitHydrogenCount(count == null ? 1 : count + 1);
+      this.add(this.hydrogens, heavy.getID(), atom.getID());
+      this.add(this.bonds, heavy.getID(), bond.getID());
+      this.heavyAtoms.put(atom.getID(), heavy.getID());
+    }
+    for (final IBond bond : copy.bonds()) {
+      if (!folded.contains(bond)) {
+        this.collapsed.addBond(bond);
+      }
+    }
+    for (final IStereoElement element : copy.stereoElements()) {
+      this.collapsed.addStereoElement(element);
+    }
+  }
+
+
+  /**
+   * @param <T>
+   *          The element type.
+   *
+   * @return An empty set comparing elements by identity.
+   */
+  private static <T> Set<T> identitySet() {
+    return Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+  }
+
+
+  /**
+   * @param atom
+   *          A hydrogen with a single bond to a heavy atom.
+   *
+   * @return True if the hydrogen is protium and not charged.
+   */
+  private boolean foldable(final IAtom atom) {
+    return (atom.getMassNumber() == null || atom.getMassNumber() == 1)
+        && (atom.getFormalCharge() == null || atom.getFormalCharge() == 0);
+  }
+
+
+  /**
+   * @param map
+   *          A map of lists by heavy atom.
+   * @param key
+   *          The identifier of the heavy atom.
+   * @param value
+   *          The identifier to add.
+   */
+  private void add(final Map<String, List<String>> map, final String key,
+      final String value) {
+    List<String> list = map.get(key);
+    if (list == null) {
+      list = new ArrayList<>();
+      map.put(key, list);
+    }
+    list.add(value);
+  }
+
+
+  /**
+   * @return The original molecule.
+   */
+  public IAtomContainer getOriginal() {
+    return this.molecule;
+  }
+
+
+  /**
+   * @return The molecule without the folded hydrogens.
+   */
+  public IAtomContainer getMolecule() {
+    return this.collapsed;
+  }
+
+
+  /**
+   * @return The number of hydrogens folded.
+   */
+  public Integer getCount() {
+    return this.heavyAtoms.size();
+  }
+
+
+  /**
+   * @param atom
+   *          The identifier of a heavy atom.
+   *
+   * @return The identifiers of the hydrogens folded into the atom, in input
+   *     order.
+   */
+  public List<String> getHydrogens(final String atom) {
+    final List<String> result = this.hydrogens.get(atom);
+    return result == null
+        ? Collections.<String>emptyList()
+        : Collections.unmodifiableList(result);
+  }
+
+
+  /**
+   * @param atom
+   *          The identifier of a heavy atom.
+   *
+   * @return The identifiers of the bonds to the hydrogens folded into the
+   *     atom, in the order of the hydrogens.
+   */
+  public List<String> getBonds(final String atom) {
+    final List<String> result = this.bonds.get(atom);
+    return result == null
+        ? Collections.<String>emptyList()
+        : Collections.unmodifiableList(result);
+  }
+
+
+  /**
+   * @param hydrogen
+   *          The identifier of a hydrogen.
+   *
+   * @return The identifier of the atom the hydrogen was folded into or
+   *     null if it was kept.
+   */
+  public String getHeavyAtom(final String hydrogen) {
+    return this.heavyAtoms.get(hydrogen);
+  }
+
+}
@@ -0,0 +1,339 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   IndexedStructure.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 15:48:33 2026
+ *
+ * @brief  Compact integer indexed graph of a molecule.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech.analysis;
+
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The graph of a molecule over integer indices.
+ *
+ * <p>Atoms and bonds are numbered in container order. Adjacency is stored
+ * in compressed sparse row form: the incidences of atom {@code u} are the
+ * positions {@code offsets[u]} to {@code offsets[u + 1] - 1} of the
+ * neighbour and edge arrays. Sets of atoms or bonds are bit sets over the
+ * indices. Identifiers are only used to translate from and to CML at the
+ * boundary; as atoms and bonds are named in file order, sorting by index
+ * agrees with {@code CmlNameComparator} without parsing names.
+ */
+public final class IndexedStructure {
+
+  private final IAtomContainer molecule;
+  private final int[] offsets;
+  private final int[] neighbours;
+  private final int[] edges;
+  private final int[] source;
+  private final int[] target;
+  private final String[] atomIds;
+  private final String[] bondIds;
+  private Map<String, Integer> atomIndex = null;
+  private Map<String, Integer> bondIndex = null;
+
+
+  /**
+   * Indexes a molecule. Atoms and bonds without identifier are named a1,
+   * a2, ... and b1, b2, ... by position.
+   *
+   * @param molecule
+   *          The molecule.
+   */
+  public IndexedStructure(final IAtomContainer molecule) {
+    this.molecule = molecule;
+    final int atoms = molecule.getAtomCount();
+    final int bonds = molecule.getBondCount();
+    final Map<IAtom, Integer> index = new IdentityHashMap<>(2 * atoms);
+    this.atomIds = new String[atoms];
+    for (int i = 0; i < atoms; i++) {
+      final IAtom atom = molecule.getAtom(i);
+      index.put(atom, i);
+      this.atomIds[i] = atom.getID() == null ? "a" + (i + 1) : atom.getID();
+    }
+    this.source = new int[bonds];
+    this.target = new int[bonds];
+    this.bondIds = new String[bonds];
+    this.offsets = new int[atoms + 1];
+    for (int i = 0; i < bonds; i++) {
+      final IBond bond = molecule.getBond(i);
+      this.source[i] = index.get(bond.getAtom(0));
+      this.target[i] = index.get(bond.getAtom(1));
+      this.bondIds[i] = bond.getID() == null ? "b" + (i + 1) : bond.getID();
+      this.offsets[this.source[i] + 1]++;
+      this.offsets[this.target[i] + 1]++;
+    }
+    for (int i = 0; i < atoms; i++) {
+      this.offsets[i + 1] += this.offsets[i];
+    }
+    this.neighbours = new int[2 * bonds];
+    this.edges = new int[2 * bonds];
+    final int[] fill = Arrays.copyOf(this.offsets, atoms);
+    for (int i = 0; i < bonds; i++) {
+      this.neighbours[fill[this.source[i]]] = this.target[i];
+      this.edges[fill[this.source[i]]++] = i;
+      this.neighbours[fill[this.target[i]]] = this.source[i];
+      this.edges[fill[this.target[i]]++] = i;
+    }
+  }
+
+
+  /**
+   * @return The indexed molecule.
+   */
+  public IAtomContainer getMolecule() {
+    return this.molecule;
+  }
+
+
+  /**
+   * @return The number of atoms.
+   */
+  public int getAtomCount() {
+    return this.atomIds.length;
+  }
+
+
+  /**
+   * @return The number of bonds.
+   */
+  public int getBondCount() {
+    return this.bondIds.length;
+  }
+
+
+  /**
+   * @param atom
+   *          An atom index.
+   *
+   * @return The number of bonds of the atom.
+   */
+  public int degree(final int atom) {
+    return this.offsets[atom + 1] - this.offsets[atom];
+  }
+
+
+  /**
+   * @param atom
+   *          An atom index.
+   * @param k
+   *          The position in the atom's adjacency, less than its degree.
+   *
+   * @return The index of the k-th neighbour.
+   */
+  public int neighbour(final int atom, final int k) {
+    return this.neighbours[this.offsets[atom] + k];
+  }
+
+
+  /**
+   * @param atom
+   *          An atom index.
+   * @param k
+   *          The position in the atom's adjacency, less than its degree.
+   *
+   * @return The index of the bond to the k-th neighbour.
+   */
+  public int edge(final int atom, final int k) {
+    return this.edges[this.offsets[atom] + k];
+  }
+
+
+  /**
+   * @param first
+   *          An atom index.
+   * @param second
+   *          Another atom index.
+   *
+   * @return The index of the bond between the atoms or -1 if they are not
+   *     bonded.
+   */
+  public int bond(final int first, final int second) {
+    for (int i = this.offsets[first]; i < this.offsets[first + 1]; i++) {
+      if (this.neighbours[i] == second) {
+        return this.edges[i];
+      }
+    }
+    return -1;
+  }
+
+
+  /**
+   * @param bond
+   *          A bond index.
+   *
+   * @return The index of the first atom of the bond.
+   */
+  public int source(final int bond) {
+    return this.source[bond];
+  }
+
+
+  /**
+   * @param bond
+   *          A bond index.
+   *
+   * @return The index of the second atom of the bond.
+   */
+  public int target(final int bond) {
+    return this.target[bond];
+  }
+
+
+  /**
+   * @param atom
+   *          An atom index.
+   *
+   * @return The identifier of the atom.
+   */
+  public String atomId(final int atom) {
+    return this.atomIds[atom];
+  }
+
+
+  /**
+   * @param bond
+   *          A bond index.
+   *
+   * @return The identifier of the bond.
+   */
+  public String bondId(final int bond) {
+    return this.bondIds[bond];
+  }
+
+
+  /**
+   * @param id
+   *          An atom identifier.
+   *
+   * @return The index of the atom or -1 if there is none.
+   */
+  public int atomIndex(final String id) {
+    if (this.atomIndex == null) {
+      this.atomIndex = indexIds(this.atomIds);
+    }
+    return this.atomIndex.getOrDefault(id, -1);
+  }
+
+
+  /**
+   * @param id
+   *          A bond identifier.
+   *
+   * @return The index of the bond or -1 if there is none.
+   */
+  public int bondIndex(final String id) {
+    if (this.bondIndex == null) {
+      this.bondIndex = indexIds(this.bondIds);
+    }
+    return this.bondIndex.getOrDefault(id, -1);
+  }
+
+
+  /**
+   * Translates atom identifiers into a set of indices. Unknown identifiers
+   * are ignored.
+   *
+   * @param ids
+   *          The atom identifiers.
+   *
+   * @return The set of atom indices.
+   */
+  public BitSet atomSet(final Iterable<String> ids) {
+    final BitSet result = new BitSet(this.getAtomCount());
+    for (final String id : ids) {
+      final int atom = this.atomIndex(id);
+      if (atom >= 0) {
+        result.set(atom);
+      }
+    }
+    return result;
+  }
+
+
+  /**
+   * @param atoms
+   *          A set of atom indices.
+   *
+   * @return The identifiers of the atoms in index order.
+   */
+  public List<String> atomIds(final BitSet atoms) {
+    return ids(atoms, this.atomIds);
+  }
+
+
+  /**
+   * @param bonds
+   *          A set of bond indices.
+   *
+   * @return The identifiers of the bonds in index order.
+   */
+  public List<String> bondIds(final BitSet bonds) {
+    return ids(bonds, this.bondIds);
+  }
+
+
+  /**
+   * @param set
+   *          A set of indices.
+   * @param names
+   *          The identifiers by index.
+   *
+   * @return The identifiers of the set in index order.
+   */
+  private static List<String> ids(final BitSet set, final String[] names) {
+    final List<String> result = new ArrayList<>(set.cardinality());
+    for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+      result.add(names[i]);
+    }
+    return result;
+  }
+
+
+  /**
+   * @param names
+   *          Identifiers by index.
+   *
+   * @return The indices by identifier.
+   */
+  private static Map<String, Integer> indexIds(final String[] names) {
+    final Map<String, Integer> result = new HashMap<>(2 * names.length);
+    for (int i = 0; i < names.length; i++) {
+      result.put(names[i], i);
+    }
+    return result;
+  }
+
+}
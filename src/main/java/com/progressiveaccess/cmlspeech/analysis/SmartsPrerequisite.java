@@ -0,0 +1,435 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   SmartsPrerequisite.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 11:05:51 2026
+ *
+ * @brief  Cheap necessary conditions for a SMARTS pattern to match.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech.analysis;
+
+import org.openscience.cdk.config.Elements;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.ringsearch.RingSearch;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Necessary conditions for a SMARTS pattern to match a molecule.
+ *
+ * <p>The conditions are derived conservatively from the pattern: elements
+ * that every match has to contain (with multiplicity), double and triple
+ * bonds that have to be present, and whether the pattern contains a ring.
+ * Recursive SMARTS, disjunctions and negations never contribute conditions.
+ * A molecule that does not satisfy the conditions cannot match the pattern,
+ * so the subgraph isomorphism test can be skipped.
+ */
+public final class SmartsPrerequisite {
+
+  private static final Map<Integer, String> NUMBERS = new HashMap<>();
+  private static final Set<String> SYMBOLS = new HashSet<>();
+  private static final Set<String> ORGANIC = new HashSet<>(
+      Arrays.asList("B", "C", "N", "O", "P", "S", "F", "Cl", "Br", "I"));
+  private static final Set<String> AROMATIC = new HashSet<>(
+      Arrays.asList("b", "c", "n", "o", "p", "s", "se", "as"));
+
+  static {
+    for (final Elements element : Elements.values()) {
+      if (element.number() > 0) {
+        NUMBERS.put(element.number(), element.symbol());
+        SYMBOLS.add(element.symbol());
+      }
+    }
+  }
+
+  private final Map<String, Integer> elements = new HashMap<>();
+  private boolean doubleBond = false;
+  private boolean tripleBond = false;
+  private boolean ring = false;
+
+
+  /**
+   * Derives the prerequisites of a SMARTS pattern.
+   *
+   * @param smarts
+   *          The SMARTS string.
+   */
+  public SmartsPrerequisite(final String smarts) {
+    this.parse(smarts);
+  }
+
+
+  /**
+   * @return The elements required, with the minimal number of occurrences.
+   */
+  public Map<String, Integer> getElements() {
+    return this.elements;
+  }
+
+
+  /**
+   * @return True if the pattern requires a double bond.
+   */
+  public boolean requiresDoubleBond() {
+    return this.doubleBond;
+  }
+
+
+  /**
+   * @return True if the pattern requires a triple bond.
+   */
+  public boolean requiresTripleBond() {
+    return this.tripleBond;
+  }
+
+
+  /**
+   * @return True if the pattern requires a ring.
+   */
+  public boolean requiresRing() {
+    return this.ring;
+  }
+
+
+  /**
+   * Checks if a molecule satisfies the prerequisites.
+   *
+   * @param profile
+   *          The profile of the molecule.
+   *
+   * @return False if the pattern can certainly not match the molecule.
+   */
+  public boolean admits(final Profile profile) {
+    for (final Map.Entry<String, Integer> entry : this.elements.entrySet()) {
+      if (profile.count(entry.getKey()) < entry.getValue()) {
+        return false;
+      }
+    }
+    if (profile.ordersKnown
+        && (this.doubleBond && !profile.doubleBond
+            || this.tripleBond && !profile.tripleBond)) {
+      return false;
+    }
+    return !this.ring || profile.ring;
+  }
+
+
+  /**
+   * Parses the top level of a SMARTS string, i.e., everything outside of
+   * recursive SMARTS.
+   *
+   * @param smarts
+   *          The SMARTS string.
+   */
+  private void parse(final String smarts) {
+    int i = 0;
+    final StringBuilder bond = new StringBuilder();
+    while (i < smarts.length()) {
+      final char c = smarts.charAt(i);
+      if (c == '[') {
+        final int end = closing(smarts, i, '[', ']');
+        this.requireBond(bond);
+        this.addElement(bracketElement(smarts.substring(i + 1, end)));
+        i = end + 1;
+      } else if (Character.isDigit(c) || c == '%') {
+        this.ring = true;
+        bond.setLength(0);
+        i += c == '%' ? 3 : 1;
+      } else if ("-=#:~@/\\!,&;".indexOf(c) >= 0) {
+        bond.append(c);
+        i++;
+      } else if (Character.isLetter(c) || c == '*') {
+        final String symbol = organicSymbol(smarts, i);
+        this.requireBond(bond);
+        this.addElement(symbol);
+        i += symbol == null ? 1 : symbol.length();
+      } else {
+        bond.setLength(0);
+        i++;
+      }
+    }
+  }
+
+
+  /**
+   * Records a required bond order if the bond expression is a plain double
+   * or triple bond.
+   *
+   * @param bond
+   *          The bond expression preceding an atom. Is reset.
+   */
+  private void requireBond(final StringBuilder bond) {
+    final String expression = bond.toString();
+    this.doubleBond = this.doubleBond || expression.equals("=");
+    this.tripleBond = this.tripleBond || expression.equals("#");
+    bond.setLength(0);
+  }
+
+
+  /**
+   * Counts a required element.
+   *
+   * @param symbol
+   *          The element symbol or null.
+   */
+  private void addElement(final String symbol) {
+    if (symbol != null) {
+      this.elements.merge(symbol, 1, Integer::sum);
+    }
+  }
+
+
+  /**
+   * Reads an atom outside of brackets.
+   *
+   * @param smarts
+   *          The SMARTS string.
+   * @param i
+   *          The position of the atom.
+   *
+   * @return The element symbol if the atom fixes an element, null otherwise.
+   */
+  private static String organicSymbol(final String smarts, final int i) {
+    if (i + 1 < smarts.length()) {
+      final String two = smarts.substring(i, i + 2);
+      if (ORGANIC.contains(two)) {
+        return two;
+      }
+    }
+    final String one = smarts.substring(i, i + 1);
+    if (ORGANIC.contains(one)) {
+      return one;
+    }
+    return AROMATIC.contains(one) ? one.toUpperCase() : null;
+  }
+
+
+  /**
+   * Computes the element required by the expression of a bracket atom. Only
+   * conjuncts without disjunction or negation are considered.
+   *
+   * @param expression
+   *          The expression inside the brackets.
+   *
+   * @return The element symbol if the atom fixes an element, null otherwise.
+   */
+  static String bracketElement(final String expression) {
+    final String stripped = stripRecursion(expression);
+    if (stripped.matches("\\d*H([+-]\\d*)?")) {
+      return "H";
+    }
+    for (final String conjunct : stripped.split(";")) {
+      if (conjunct.indexOf(',') >= 0) {
+        continue;
+      }
+      final String symbol = conjunctElement(conjunct);
+      if (symbol != null) {
+        return symbol;
+      }
+    }
+    return null;
+  }
+
+
+  /**
+   * Finds a non-negated element primitive in a conjunction of primitives.
+   *
+   * @param conjunct
+   *          The conjunction.
+   *
+   * @return The element symbol or null.
+   */
+  private static String conjunctElement(final String conjunct) {
+    int i = 0;
+    while (i < conjunct.length() && Character.isDigit(conjunct.charAt(i))) {
+      i++;
+    }
+    while (i < conjunct.length()) {
+      boolean negated = false;
+      while (i < conjunct.length()
+             && (conjunct.charAt(i) == '!' || conjunct.charAt(i) == '&')) {
+        negated = negated || conjunct.charAt(i) == '!';
+        i++;
+      }
+      if (i >= conjunct.length()) {
+        break;
+      }
+      final char c = conjunct.charAt(i);
+      String symbol = null;
+      int length = 1;
+      if (c == '#') {
+        int end = i + 1;
+        while (end < conjunct.length()
+               && Character.isDigit(conjunct.charAt(end))) {
+          end++;
+        }
+        if (end > i + 1) {
+          symbol = NUMBERS.get(Integer.parseInt(conjunct.substring(i + 1,
+                                                                   end)));
+        }
+        length = end - i;
+      } else if (Character.isUpperCase(c)) {
+        final String two = i + 1 < conjunct.length()
+            ? conjunct.substring(i, i + 2) : "";
+        if (SYMBOLS.contains(two)) {
+          symbol = two;
+          length = 2;
+        } else if ("BCNOPSFIKUVWY".indexOf(c) >= 0) {
+          symbol = String.valueOf(c);
+        }
+      } else if (Character.isLowerCase(c)) {
+        final String two = i + 1 < conjunct.length()
+            ? conjunct.substring(i, i + 2) : "";
+        if (AROMATIC.contains(two)) {
+          symbol = two;
+          length = 2;
+        } else if (AROMATIC.contains(String.valueOf(c))) {
+          symbol = String.valueOf(c);
+        }
+        symbol = symbol == null ? null
+            : Character.toUpperCase(symbol.charAt(0)) + symbol.substring(1);
+      }
+      if (symbol != null && !negated) {
+        return symbol;
+      }
+      i += length;
+      while (i < conjunct.length() && Character.isDigit(conjunct.charAt(i))) {
+        i++;
+      }
+    }
+    return null;
+  }
+
+
+  /**
+   * Removes all recursive SMARTS from an atom expression.
+   *
+   * @param expression
+   *          The atom expression.
+   *
+   * @return The expression without recursive SMARTS.
+   */
+  private static String stripRecursion(final String expression) {
+    final StringBuilder result = new StringBuilder();
+    int i = 0;
+    while (i < expression.length()) {
+      if (expression.startsWith("$(", i)) {
+        i = closing(expression, i + 1, '(', ')') + 1;
+      } else {
+        result.append(expression.charAt(i));
+        i++;
+      }
+    }
+    return result.toString();
+  }
+
+
+  /**
+   * Finds the matching closing bracket, taking nesting into account.
+   *
+   * @param string
+   *          The string.
+   * @param start
+   *          The position of the opening bracket.
+   * @param open
+   *          The opening bracket.
+   * @param close
+   *          The closing bracket.
+   *
+   * @return The position of the matching closing bracket or the end of the
+   *     string if there is none.
+   */
+  private static int closing(final String string, final int start,
+      final char open, final char close) {
+    int depth = 0;
+    for (int i = start; i < string.length(); i++) {
+      if (string.charAt(i) == open) {
+        depth++;
+      } else if (string.charAt(i) == close && --depth == 0) {
+        return i;
+      }
+    }
+    return string.length();
+  }
+
+
+  /**
+   * The properties of a molecule checked against the prerequisites. Computed
+   * once per molecule.
+   */
+  public static final class Profile {
+
+    private final Map<String, Integer> elements = new HashMap<>();
+    private boolean doubleBond = false;
+    private boolean tripleBond = false;
+    private boolean ordersKnown = true;
+    private final boolean ring;
+
+
+    /**
+     * Profiles a molecule.
+     *
+     * @param molecule
+     *          The molecule.
+     */
+    public Profile(final IAtomContainer molecule) {
+      for (final IAtom atom : molecule.atoms()) {
+        String symbol = atom.getSymbol();
+        if (symbol == null && atom.getAtomicNumber() != null) {
+          symbol = NUMBERS.get(atom.getAtomicNumber());
+        }
+        if (symbol != null) {
+          this.elements.merge(symbol, 1, Integer::sum);
+        }
+      }
+      for (final IBond bond : molecule.bonds()) {
+        final IBond.Order order = bond.getOrder();
+        if (order == null || order == IBond.Order.UNSET) {
+          this.ordersKnown = false;
+        }
+        this.doubleBond = this.doubleBond || order == IBond.Order.DOUBLE;
+        this.tripleBond = this.tripleBond || order == IBond.Order.TRIPLE;
+      }
+      this.ring = new RingSearch(molecule).cyclic().length > 0;
+    }
+
+
+    /**
+     * @param symbol
+     *          An element symbol.
+     *
+     * @return The number of atoms of that element.
+     */
+    public Integer count(final String symbol) {
+      return this.elements.getOrDefault(symbol, 0);
+    }
+
+  }
+
+}
@@ -0,0 +1,1097 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   BatchEnricher.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 09:30:12 2026
+ *
+ * @brief  Batch enrichment of a corpus of molecule files.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech.base;
+
+import com.progressiveaccess.cmlspeech.sre.SreBinaryWriter;
+import com.progressiveaccess.cmlspeech.sre.SreJsonWriter;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.io.FileUtils;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Enriches a whole corpus of molecules in one run.
+ *
+ * <p>Inputs can be given as files, directories, glob patterns or list files.
+ * Enrichment options for the individual molecules follow a {@code --}
+ * separator and are passed on unchanged to {@link App}. As enrichment keeps
+ * global state, molecules are processed sequentially within a JVM. With more
+ * than one job the corpus is partitioned deterministically over a pool of
+ * worker JVMs, each of which pays the start up cost only once and runs in its
+ * own scratch directory.
+ *
+ * <p>SD files, and with the split option CML files, can hold many molecules.
+ * They are read lazily, one record at a time, and every record is enriched
+ * as a molecule of its own, named after the file and the record index. A
+ * record that fails does not affect the others. In a worker pool every
+ * worker takes every n-th record of such a file.
+ *
+ * <p>With a {@link ResultCache} duplicate molecules are enriched only once.
+ * Workers have a memory cache each and share entries through the disk tier
+ * only.
+ *
+ * <p>Besides the enriched CML the annotations can be written in further
+ * formats for the navigator, next to the CML file of the molecule.
+ */
+public final class BatchEnricher {
+
+  private static final String SUFFIX = "-enr.cml";
+  private static final String SEPARATOR = "--";
+  private static final String STAGED = ".enrich-";
+  private static final List<String> FORMATS = Arrays.asList("binary", "json");
+  private static final List<String> EXTENSIONS =
+      Arrays.asList("mol", "cml", "xml", "sdf", "sd");
+  private static final List<String> SDF = Arrays.asList("sdf", "sd");
+
+  private final SortedSet<Path> inputs = new TreeSet<>();
+  private final Path outputDir;
+  private final Integer jobs;
+  private final String[] options;
+  private final List<String> failures = new ArrayList<>();
+  private final List<String> crashes = new ArrayList<>();
+  private boolean splitCml = false;
+  private Integer partition = 0;
+  private Integer partitions = 1;
+  private Integer total = 0;
+  private ResultCache cache = null;
+  private Integer cacheSize = 0;
+  private Path cacheDir = null;
+  private StageStats stats = null;
+  private Path statsFile = null;
+  private Path progress = null;
+  private final List<String> formats = new ArrayList<>();
+
+
+  /**
+   * Constructs a batch enricher.
+   *
+   * @param outputDir
+   *          The directory for the enriched files.
+   * @param jobs
+   *          The number of worker JVMs.
+   * @param options
+   *          The options passed on to the enrichment of each molecule.
+   */
+  public BatchEnricher(final Path outputDir, final Integer jobs,
+      final String[] options) {
+    this.outputDir = outputDir.toAbsolutePath().normalize();
+    this.jobs = Math.max(1, jobs);
+    this.options = options;
+  }
+
+
+  /**
+   * Adds an input, which can be a file, a directory or a glob pattern.
+   * Directories are searched recursively for molecule files.
+   *
+   * @param input
+   *          The input specification.
+   *
+   * @throws IOException
+   *          If a directory cannot be traversed.
+   */
+  public void addInput(final String input) throws IOException {
+    final int glob = indexOfGlob(input);
+    if (glob >= 0) {
+      final int slash = input.lastIndexOf('/', glob);
+      final Path base = Paths.get(
+          slash < 0 ? "." : input.substring(0, slash + 1));
+      final PathMatcher matcher = FileSystems.getDefault().getPathMatcher(
+          "glob:" + (slash < 0 ? "./" + input : input));
+      this.addFiles(base, matcher::matches);
+      return;
+    }
+    final Path path = Paths.get(input);
+    if (Files.isDirectory(path)) {
+      this.addFiles(path, BatchEnricher::isMolecule);
+    } else {
+      this.inputs.add(path.toAbsolutePath().normalize());
+    }
+  }
+
+
+  /**
+   * Adds all inputs listed in a file, one per line.
+   *
+   * @param list
+   *          The list file.
+   *
+   * @throws IOException
+   *          If the list file cannot be read.
+   */
+  public void addList(final Path list) throws IOException {
+    for (final String line
+             : Files.readAllLines(list, StandardCharsets.UTF_8)) {
+      if (!line.trim().isEmpty()) {
+        this.addInput(line.trim());
+      }
+    }
+  }
+
+
+  /**
+   * @param splitCml
+   *          True if CML inputs are split into their molecules.
+   */
+  public void setSplitCml(final boolean splitCml) {
+    this.splitCml = splitCml;
+  }
+
+
+  /**
+   * Enables the cache of enriched output, so that duplicate molecules are
+   * only enriched once.
+   *
+   * @param size
+   *          The number of entries held in memory.
+   * @param directory
+   *          The directory of the disk tier or null.
+   *
+   * @throws IOException
+   *          If the directory cannot be created.
+   */
+  public void setCache(final Integer size, final Path directory)
+      throws IOException {
+    this.cacheSize = size;
+    this.cacheDir = directory == null
+        ? null : directory.toAbsolutePath().normalize();
+    this.cache = new ResultCache(size, this.cacheDir);
+  }
+
+
+  /**
+   * Enables per-molecule statistics of the enrichment stages.
+   *
+   * @param report
+   *          The file for the tab separated report.
+   */
+  public void setStats(final Path report) {
+    this.statsFile = report.toAbsolutePath().normalize();
+  }
+
+
+  /**
+   * Sets the additional output formats of the annotations.
+   *
+   * @param formats
+   *          The formats, binary or json.
+   *
+   * @throws IllegalArgumentException
+   *          If a format is not known.
+   */
+  public void setFormats(final List<String> formats) {
+    for (final String format : formats) {
+      if (!FORMATS.contains(format)) {
+        throw new IllegalArgumentException("Unknown output format: "
+            + format);
+      }
+    }
+    this.formats.clear();
+    this.formats.addAll(formats);
+  }
+
+
+  /**
+   * Restricts enrichment to every n-th record of multi-record inputs.
+   *
+   * @param partition
+   *          The index of the records to take, modulo the partitions.
+   * @param partitions
+   *          The number of partitions.
+   */
+  public void setPartition(final Integer partition,
+      final Integer partitions) {
+    this.partition = partition;
+    this.partitions = Math.max(1, partitions);
+  }
+
+
+  /**
+   * Names a file that holds the label of the molecule being enriched while
+   * it is enriched, so that a parent can tell which one a worker died on.
+   *
+   * @param progress
+   *          The progress file.
+   */
+  public void setProgress(final Path progress) {
+    this.progress = progress;
+  }
+
+
+  /**
+   * @return The sorted list of inputs.
+   */
+  public List<Path> getInputs() {
+    return new ArrayList<>(this.inputs);
+  }
+
+
+  /**
+   * @return The inputs and records that could not be enriched.
+   */
+  public List<String> getFailures() {
+    return this.failures;
+  }
+
+
+  /**
+   * @return The workers that ended abnormally.
+   */
+  public List<String> getCrashes() {
+    return this.crashes;
+  }
+
+
+  /**
+   * Enriches all inputs and prints a throughput summary.
+   *
+   * @throws IOException
+   *          If input names clash or the worker pool cannot be set up.
+   */
+  public void run() throws IOException {
+    this.checkOutputNames();
+    Files.createDirectories(this.outputDir);
+    if (this.partitions == 1) {
+      this.clearOutputs();
+    }
+    if (this.statsFile != null) {
+      this.stats = new StageStats(this.statsFile);
+    }
+    final long start = System.nanoTime();
+    final Integer workers = this.inputs.stream().anyMatch(this::isMultiRecord)
+        ? this.jobs : Math.min(this.jobs, this.inputs.size());
+    if (workers <= 1) {
+      for (final Path input : this.inputs) {
+        if (this.isMultiRecord(input)) {
+          this.enrichRecords(input);
+        } else {
+          this.total++;
+          this.enrich(input, input.toString());
+        }
+      }
+    } else {
+      this.runPool(workers);
+    }
+    final double seconds = (System.nanoTime() - start) / 1e9;
+    final Integer done = this.total - this.failures.size();
+    System.out.println(String.format(
+        "Enriched %d of %d molecules in %.2fs (%.2f molecules/s, %d %s).",
+        done, this.total, seconds, done / Math.max(seconds, 1e-9),
+        Math.max(workers, 1), workers > 1 ? "workers" : "worker"));
+    if (this.cache != null && workers <= 1) {
+      System.out.println(String.format("Result cache: %d hits, %d misses.",
+          this.cache.getHits(), this.cache.getMisses()));
+    }
+    if (this.stats != null) {
+      this.stats.close();
+      System.out.print(this.stats.summary());
+    }
+    for (final String failure : this.failures) {
+      System.out.println("Failed: " + failure);
+    }
+    for (final String crash : this.crashes) {
+      System.out.println("Crashed: " + crash);
+    }
+  }
+
+
+  /**
+   * Enriches the records of a multi-record file that belong to this
+   * partition, one at a time. Each record is written to a scratch file that
+   * is removed again after enrichment.
+   *
+   * @param input
+   *          The multi-record file.
+   */
+  private void enrichRecords(final Path input) {
+    Path scratch = null;
+    try (MoleculeRecordReader reader =
+             MoleculeRecordReader.open(input, this.format(input))) {
+      scratch = Files.createTempDirectory("cmlspeech-records");
+      while (reader.hasNext()) {
+        final MoleculeRecordReader.Record record = reader.next();
+        if ((record.getIndex() - 1) % this.partitions != this.partition) {
+          continue;
+        }
+        this.total++;
+        final String label = input + "#" + record.getIndex()
+            + (record.getTitle().isEmpty() ? "" : " (" + record.getTitle()
+               + ")");
+        final Path file = record.write(scratch, baseName(input));
+        this.enrich(file, label);
+        Files.deleteIfExists(file);
+      }
+    } catch (final IOException | UncheckedIOException e) {
+      System.err.println("Error reading records of " + input + ": "
+          + e.getMessage());
+      this.failures.add(input.toString());
+    } finally {
+      if (scratch != null) {
+        FileUtils.deleteQuietly(scratch.toFile());
+      }
+    }
+  }
+
+
+  /**
+   * Enriches a single molecule in this JVM and moves the result into the
+   * output directory. As the enrichment writes its result to the working
+   * directory, the molecule is enriched from a uniquely named copy, so that
+   * no file in the working directory is overwritten or removed.
+   *
+   * @param input
+   *          The molecule file.
+   * @param label
+   *          The name of the molecule in messages.
+   */
+  @SuppressWarnings("try")
+  private void enrich(final Path input, final String label) {
+    final Path target = this.outputDir.resolve(outputName(input));
+    if (this.stats != null) {
+      this.stats.begin(label);
+    }
+    IAtomContainer molecule = null;
+    Path staged = null;
+    Path result = null;
+    try {
+      this.report(label);
+      ResultCache.Key key;
+      String cached;
+      try (StageStats.Timer timer =
+               this.cache == null ? null : this.time("cache")) {
+        molecule = this.read(input);
+        key = this.cacheKey(molecule);
+        cached = key == null ? null : this.cache.get(key);
+      }
+      if (cached != null) {
+        Files.write(target, cached.getBytes(StandardCharsets.UTF_8));
+        this.convert(target);
+        return;
+      }
+      staged = Files.createTempFile(this.outputDir, STAGED,
+                                    "." + extension(input));
+      Files.copy(input, staged, StandardCopyOption.REPLACE_EXISTING);
+      final Path output = Paths.get(outputName(staged)).toAbsolutePath();
+      if (Files.exists(output)) {
+        throw new IOException("Output " + output + " exists already");
+      }
+      result = output;
+      final String[] args =
+          Arrays.copyOf(this.options, this.options.length + 1);
+      args[this.options.length] = staged.toString();
+      try (StageStats.Timer timer = this.time("enrich")) {
+        App.main(args);
+      }
+      if (!Files.exists(result)) {
+        throw new IOException("No output written for " + input);
+      }
+      try (StageStats.Timer timer = this.time("store")) {
+        Files.move(result, target, StandardCopyOption.REPLACE_EXISTING);
+        if (key != null) {
+          this.cache.put(key, new String(Files.readAllBytes(target),
+                                         StandardCharsets.UTF_8));
+        }
+      }
+      this.convert(target);
+    } catch (final Exception e) {
+      System.err.println("Enrichment Error for " + label + ": "
+          + e.getMessage());
+      this.failures.add(label);
+    } finally {
+      try {
+        if (staged != null) {
+          Files.deleteIfExists(staged);
+        }
+        if (result != null) {
+          Files.deleteIfExists(result);
+        }
+        this.report(null);
+      } catch (final IOException e) {
+        System.err.println("Error cleaning up after " + label + ": "
+            + e.getMessage());
+      }
+      this.endStats(molecule);
+    }
+  }
+
+
+  /**
+   * Updates the progress file, if any.
+   *
+   * @param label
+   *          The molecule being enriched or null once it is done.
+   *
+   * @throws IOException
+   *          If the progress file cannot be written.
+   */
+  private void report(final String label) throws IOException {
+    if (this.progress == null) {
+      return;
+    }
+    if (label == null) {
+      Files.deleteIfExists(this.progress);
+    } else {
+      Files.write(this.progress, label.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+
+  /**
+   * Writes the annotations of an enriched molecule in the additional
+   * formats.
+   *
+   * @param target
+   *          The enriched CML file.
+   *
+   * @throws IOException
+   *          If a file cannot be read or written.
+   */
+  @SuppressWarnings("try")
+  private void convert(final Path target) throws IOException {
+    if (this.formats.isEmpty()) {
+      return;
+    }
+    final String name = target.getFileName().toString();
+    final String base = name.substring(0, name.length() - ".cml".length());
+    try (StageStats.Timer timer = this.time("convert")) {
+      if (this.formats.contains("binary")) {
+        SreBinaryWriter.convert(target, target.resolveSibling(base + ".sre"));
+      }
+      if (this.formats.contains("json")) {
+        SreJsonWriter.convert(target, target.resolveSibling(base + ".json"),
+                              this.locale());
+      }
+    }
+  }
+
+
+  /**
+   * @return The locale of the speech, as given to the enrichment with the
+   *     -i option, or english as in {@link Cli}.
+   */
+  private String locale() {
+    final int index = Arrays.asList(this.options).indexOf("-i");
+    return index >= 0 && index + 1 < this.options.length
+        ? this.options[index + 1] : "english";
+  }
+
+
+  /**
+   * @param stage
+   *          The name of a stage.
+   *
+   * @return A timer for the stage or null if no statistics are recorded.
+   */
+  private StageStats.Timer time(final String stage) {
+    return this.stats == null ? null : this.stats.time(stage);
+  }
+
+
+  /**
+   * Records the statistics of a molecule.
+   *
+   * @param molecule
+   *          The molecule or null if it could not be read.
+   */
+  private void endStats(final IAtomContainer molecule) {
+    if (this.stats == null) {
+      return;
+    }
+    try {
+      if (molecule != null) {
+        this.stats.count(molecule.getAtomCount(), molecule.getBondCount());
+      }
+      this.stats.end();
+    } catch (final IOException e) {
+      System.err.println("Error writing statistics: " + e.getMessage());
+    }
+  }
+
+
+  /**
+   * Reads a molecule for its cache key and statistics.
+   *
+   * @param input
+   *          The molecule file.
+   *
+   * @return The molecule or null if it is not needed or cannot be read, in
+   *     which case it is enriched without cache.
+   */
+  private IAtomContainer read(final Path input) {
+    if (this.cache == null && this.stats == null) {
+      return null;
+    }
+    try {
+      return ResultCache.read(input);
+    } catch (final IOException | CDKException e) {
+      return null;
+    }
+  }
+
+
+  /**
+   * Computes the cache key of a molecule.
+   *
+   * @param molecule
+   *          The molecule or null.
+   *
+   * @return The key or null if there is no cache or the molecule cannot be
+   *     canonicalised, in which case it is enriched without cache.
+   */
+  private ResultCache.Key cacheKey(final IAtomContainer molecule) {
+    if (this.cache == null || molecule == null) {
+      return null;
+    }
+    try {
+      return ResultCache.key(molecule, this.options);
+    } catch (final CDKException e) {
+      return null;
+    }
+  }
+
+
+  /**
+   * Distributes the inputs round robin over a pool of worker JVMs, each
+   * running sequentially in its own scratch directory. Multi-record inputs
+   * are given to every worker, which takes its share of the records.
+   *
+   * @param workers
+   *          The number of workers.
+   *
+   * @throws IOException
+   *          If the worker pool cannot be set up.
+   */
+  private void runPool(final Integer workers) throws IOException {
+    final List<Path> files = new ArrayList<>();
+    final List<Path> containers = new ArrayList<>();
+    for (final Path input : this.inputs) {
+      (this.isMultiRecord(input) ? containers : files).add(input);
+    }
+    final Path scratch = Files.createTempDirectory("cmlspeech-batch");
+    final List<Process> processes = new ArrayList<>();
+    try {
+      for (int i = 0; i < workers; i++) {
+        final List<String> partition = new ArrayList<>();
+        for (int j = i; j < files.size(); j += workers) {
+          partition.add(files.get(j).toString());
+        }
+        containers.forEach(c -> partition.add(c.toString()));
+        final Path list = scratch.resolve("worker" + i + ".lst");
+        final Path directory = Files.createDirectory(
+            scratch.resolve("worker" + i));
+        Files.write(list, partition, StandardCharsets.UTF_8);
+        processes.add(new ProcessBuilder(this.workerCommand(list, i, workers))
+                      .directory(directory.toFile()).inheritIO().start());
+      }
+      for (int i = 0; i < workers; i++) {
+        this.checkWorker(i, processes.get(i).waitFor(),
+                         progressFile(scratch.resolve("worker" + i + ".lst")));
+      }
+      if (!this.crashes.isEmpty()) {
+        try (Stream<Path> stream = Files.list(this.outputDir)) {
+          for (final Path file : stream.collect(Collectors.toList())) {
+            if (file.getFileName().toString().startsWith(STAGED)) {
+              Files.deleteIfExists(file);
+            }
+          }
+        }
+      }
+    } catch (final InterruptedException e) {
+      processes.forEach(Process::destroy);
+      Thread.currentThread().interrupt();
+    } finally {
+      FileUtils.deleteQuietly(scratch.toFile());
+    }
+    if (this.stats != null) {
+      for (int i = 0; i < workers; i++) {
+        this.stats.merge(this.statsPart(i));
+        Files.deleteIfExists(this.statsPart(i));
+      }
+    }
+    this.total += files.size();
+    for (final Path input : files) {
+      if (!Files.exists(this.outputDir.resolve(outputName(input)))) {
+        this.failures.add(input.toString());
+      }
+    }
+    for (final Path container : containers) {
+      this.checkRecords(container);
+    }
+  }
+
+
+  /**
+   * Checks how a worker ended. A worker exits with 1 if some of its
+   * molecules failed, which are found by their missing output. Any other
+   * abnormal exit is recorded as a crash, which fails the batch, naming the
+   * molecule the worker was enriching if any.
+   *
+   * @param worker
+   *          The index of the worker.
+   * @param exit
+   *          The exit value of the worker.
+   * @param progress
+   *          The progress file of the worker.
+   *
+   * @throws IOException
+   *          If the progress file cannot be read.
+   */
+  private void checkWorker(final Integer worker, final Integer exit,
+      final Path progress) throws IOException {
+    final String current = Files.exists(progress)
+        ? new String(Files.readAllBytes(progress), StandardCharsets.UTF_8)
+        : null;
+    if (current == null && (exit == 0 || exit == 1)) {
+      return;
+    }
+    final String crash = "worker " + worker + " with exit value " + exit
+        + (current == null ? "" : " while enriching " + current);
+    System.err.println("Crash of " + crash
+        + "; its remaining molecules are not enriched.");
+    this.crashes.add(crash);
+  }
+
+
+  /**
+   * Counts the records of a multi-record input and records those without
+   * output as failures.
+   *
+   * @param input
+   *          The multi-record file.
+   */
+  private void checkRecords(final Path input) {
+    try (MoleculeRecordReader reader =
+             MoleculeRecordReader.open(input, this.format(input))) {
+      while (reader.hasNext()) {
+        final Integer index = reader.next().getIndex();
+        this.total++;
+        if (!Files.exists(this.outputDir.resolve(
+                baseName(input) + "-" + index + SUFFIX))) {
+          this.failures.add(input + "#" + index);
+        }
+      }
+    } catch (final IOException | UncheckedIOException e) {
+      this.failures.add(input.toString());
+    }
+  }
+
+
+  /**
+   * Assembles the command line for a worker JVM.
+   *
+   * @param list
+   *          The file listing the worker's inputs.
+   * @param worker
+   *          The index of the worker.
+   * @param workers
+   *          The number of workers.
+   *
+   * @return The command line.
+   */
+  private List<String> workerCommand(final Path list, final Integer worker,
+      final Integer workers) {
+    final List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java")
+                .toString());
+    command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(BatchEnricher.class.getName());
+    command.addAll(Arrays.asList("-j", "1", "-o", this.outputDir.toString(),
+                                 "-l", list.toString(),
+                                 "-r", progressFile(list).toString(),
+                                 "-p", worker + "/" + workers));
+    if (this.splitCml) {
+      command.add("-s");
+    }
+    if (this.cache != null) {
+      command.addAll(Arrays.asList("-c", this.cacheSize.toString()));
+    }
+    if (this.cacheDir != null) {
+      command.addAll(Arrays.asList("-d", this.cacheDir.toString()));
+    }
+    if (this.statsFile != null) {
+      command.addAll(Arrays.asList("-t", this.statsPart(worker).toString()));
+    }
+    if (!this.formats.isEmpty()) {
+      command.addAll(Arrays.asList("-f", String.join(",", this.formats)));
+    }
+    command.add(SEPARATOR);
+    command.addAll(Arrays.asList(this.options));
+    return command;
+  }
+
+
+  /**
+   * @param list
+   *          The file listing a worker's inputs.
+   *
+   * @return The progress file of the worker.
+   */
+  private static Path progressFile(final Path list) {
+    return Paths.get(list + ".progress");
+  }
+
+
+  /**
+   * @param worker
+   *          The index of a worker.
+   *
+   * @return The file for the statistics of the worker.
+   */
+  private Path statsPart(final Integer worker) {
+    return Paths.get(this.statsFile + "." + worker);
+  }
+
+
+  /**
+   * Ensures that no two inputs are written to the same output file, where
+   * the records of a multi-record input are written to files named after
+   * the input and the record index.
+   *
+   * @throws IOException
+   *          If two inputs share an output name.
+   */
+  private void checkOutputNames() throws IOException {
+    final Map<String, Path> names = new HashMap<>();
+    final Map<Pattern, Path> records = new HashMap<>();
+    for (final Path input : this.inputs) {
+      final Path clash = names.put(outputName(input), input);
+      if (clash != null) {
+        throw new IOException("Inputs " + clash + " and " + input
+            + " would both be written to " + outputName(input));
+      }
+      if (this.isMultiRecord(input)) {
+        records.put(recordPattern(input), input);
+      }
+    }
+    for (final Map.Entry<Pattern, Path> entry : records.entrySet()) {
+      for (final Map.Entry<String, Path> name : names.entrySet()) {
+        if (entry.getKey().matcher(name.getKey()).matches()) {
+          throw new IOException("Inputs " + entry.getValue() + " and "
+              + name.getValue() + " would both be written to "
+              + name.getKey());
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Removes the outputs of earlier runs, so that no stale output is taken
+   * for a molecule that fails in this run.
+   *
+   * @throws IOException
+   *          If the output directory cannot be read or a file cannot be
+   *          removed.
+   */
+  private void clearOutputs() throws IOException {
+    final List<Pattern> records = new ArrayList<>();
+    for (final Path input : this.inputs) {
+      Files.deleteIfExists(this.outputDir.resolve(outputName(input)));
+      if (this.isMultiRecord(input)) {
+        records.add(recordPattern(input));
+      }
+    }
+    if (records.isEmpty()) {
+      return;
+    }
+    try (Stream<Path> stream = Files.list(this.outputDir)) {
+      for (final Path file : stream.collect(Collectors.toList())) {
+        final String name = file.getFileName().toString();
+        if (records.stream().anyMatch(r -> r.matcher(name).matches())) {
+          Files.deleteIfExists(file);
+        }
+      }
+    }
+  }
+
+
+  /**
+   * @param input
+   *          A multi-record file.
+   *
+   * @return The pattern of the output names of its records.
+   */
+  private static Pattern recordPattern(final Path input) {
+    return Pattern.compile(Pattern.quote(baseName(input)) + "-\\d+"
+                           + Pattern.quote(SUFFIX));
+  }
+
+
+  /**
+   * Adds all regular files below a directory that satisfy a filter.
+   *
+   * @param base
+   *          The directory.
+   * @param filter
+   *          The filter on files.
+   *
+   * @throws IOException
+   *          If the directory cannot be traversed.
+   */
+  private void addFiles(final Path base, final Predicate<Path> filter)
+      throws IOException {
+    try (Stream<Path> stream = Files.walk(base)) {
+      this.inputs.addAll(stream.filter(Files::isRegularFile).filter(filter)
+                         .map(p -> p.toAbsolutePath().normalize())
+                         .collect(Collectors.toList()));
+    }
+  }
+
+
+  /**
+   * @param file
+   *          A file.
+   *
+   * @return True if the file looks like a molecule that is not yet enriched.
+   */
+  private static boolean isMolecule(final Path file) {
+    final String name = file.getFileName().toString();
+    final int dot = name.lastIndexOf('.');
+    return dot > 0 && !name.endsWith(SUFFIX)
+        && EXTENSIONS.contains(name.substring(dot + 1).toLowerCase());
+  }
+
+
+  /**
+   * @param file
+   *          An input file.
+   *
+   * @return True if the file is read as a sequence of records.
+   */
+  private boolean isMultiRecord(final Path file) {
+    final String extension = extension(file);
+    return SDF.contains(extension) || this.splitCml
+        && (extension.equals("cml") || extension.equals("xml"));
+  }
+
+
+  /**
+   * @param file
+   *          A multi-record file.
+   *
+   * @return The format of its records.
+   */
+  private MoleculeRecordReader.Format format(final Path file) {
+    return SDF.contains(extension(file))
+        ? MoleculeRecordReader.Format.SDF : MoleculeRecordReader.Format.CML;
+  }
+
+
+  /**
+   * @param file
+   *          A file.
+   *
+   * @return The lower case extension of the file name.
+   */
+  private static String extension(final Path file) {
+    final String name = file.getFileName().toString();
+    final int dot = name.lastIndexOf('.');
+    return dot > 0 ? name.substring(dot + 1).toLowerCase() : "";
+  }
+
+
+  /**
+   * @param file
+   *          A file.
+   *
+   * @return The file name without extension.
+   */
+  private static String baseName(final Path file) {
+    final String name = file.getFileName().toString();
+    final int dot = name.lastIndexOf('.');
+    return dot > 0 ? name.substring(0, dot) : name;
+  }
+
+
+  /**
+   * @param input
+   *          The string with the input specification.
+   *
+   * @return The position of the first glob character or -1.
+   */
+  private static int indexOfGlob(final String input) {
+    for (int i = 0; i < input.length(); i++) {
+      if ("*?[{".indexOf(input.charAt(i)) >= 0) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+
+  /**
+   * Computes the name of the enriched file as written by {@link App}.
+   *
+   * @param input
+   *          The molecule file.
+   *
+   * @return The file name of the enriched molecule.
+   */
+  public static String outputName(final Path input) {
+    return baseName(input) + SUFFIX;
+  }
+
+
+  /**
+   * Runs the batch enrichment.
+   *
+   * @param args
+   *          Batch options and inputs, optionally followed by {@code --} and
+   *          the enrichment options.
+   *
+   * @throws IOException
+   *          If inputs cannot be read or the output cannot be written.
+   */
+  public static void main(final String[] args) throws IOException {
+    final int separator = Arrays.asList(args).indexOf(SEPARATOR);
+    final String[] batchArgs = separator < 0
+        ? args : Arrays.copyOfRange(args, 0, separator);
+    final String[] enrichArgs = separator < 0
+        ? new String[0] : Arrays.copyOfRange(args, separator + 1, args.length);
+    final Options options = new Options();
+    options.addOption("o", "output", true,
+                      "Directory for the enriched files.");
+    options.addOption("j", "jobs", true,
+                      "Number of worker JVMs to enrich with.");
+    options.addOption("l", "list", true,
+                      "File with one input file, directory or glob per line.");
+    options.addOption("s", "split", false,
+                      "Split CML inputs into their molecules.");
+    options.addOption("p", "partition", true,
+                      "Only enrich records k, k+n, ... of multi-record inputs,"
+                      + " given as k/n.");
+    options.addOption("c", "cache", true,
+                      "Cache the output of up to n distinct molecules in"
+                      + " memory and reuse it for duplicates.");
+    options.addOption("d", "cache-dir", true,
+                      "Directory to keep cached output across runs.");
+    options.addOption("t", "stats", true,
+                      "Write time and allocation per molecule and stage to"
+                      + " the given file.");
+    options.addOption("f", "formats", true,
+                      "Comma separated additional output formats of the"
+                      + " annotations: binary, json.");
+    options.addOption("r", "progress", true,
+                      "File naming the molecule being enriched.");
+    options.addOption("h", "help", false, "Print this message.");
+    CommandLine cl;
+    try {
+      cl = new BasicParser().parse(options, batchArgs);
+    } catch (final ParseException e) {
+      System.err.println("Error parsing command line: " + e.getMessage());
+      usage(options);
+      return;
+    }
+    if (cl.hasOption("h")) {
+      usage(options);
+      return;
+    }
+    final BatchEnricher batch = new BatchEnricher(
+        Paths.get(cl.getOptionValue("o", ".")),
+        Integer.parseInt(cl.getOptionValue("j", "1")), enrichArgs);
+    batch.setSplitCml(cl.hasOption("s"));
+    if (cl.hasOption("r")) {
+      batch.setProgress(Paths.get(cl.getOptionValue("r")));
+    }
+    if (cl.hasOption("t")) {
+      batch.setStats(Paths.get(cl.getOptionValue("t")));
+    }
+    if (cl.hasOption("c") || cl.hasOption("d")) {
+      batch.setCache(Integer.parseInt(cl.getOptionValue("c", "1000")),
+                     cl.hasOption("d")
+                     ? Paths.get(cl.getOptionValue("d")) : null);
+    }
+    if (cl.hasOption("f")) {
+      try {
+        batch.setFormats(Arrays.asList(cl.getOptionValue("f").split(",")));
+      } catch (final IllegalArgumentException e) {
+        System.err.println(e.getMessage());
+        usage(options);
+        return;
+      }
+    }
+    if (cl.hasOption("p")) {
+      final String[] partition = cl.getOptionValue("p").split("/");
+      batch.setPartition(Integer.parseInt(partition[0]),
+                         Integer.parseInt(partition[1]));
+    }
+    if (cl.hasOption("l")) {
+      batch.addList(Paths.get(cl.getOptionValue("l")));
+    }
+    for (final String input : cl.getArgs()) {
+      batch.addInput(input);
+    }
+    batch.run();
+    if (!batch.getFailures().isEmpty() || !batch.getCrashes().isEmpty()) {
+      System.exit(1);
+    }
+  }
+
+
+  /**
+   * Prints the usage message.
+   *
+   * @param options
+   *          The batch options.
+   */
+  private static void usage(final Options options) {
+    new HelpFormatter().printHelp(
+        "enrich-batch [options] inputs... [-- enrichment options]", options);
+  }
+
+}
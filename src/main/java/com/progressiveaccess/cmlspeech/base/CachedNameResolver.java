@@ -0,0 +1,218 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   CachedNameResolver.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 14:16:45 2026
+ *
+ * @brief  Name resolver backed by a persistent cache.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech.base;
+
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.inchi.InChIGenerator;
+import org.openscience.cdk.inchi.InChIGeneratorFactory;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import net.sf.jniinchi.INCHI_RET;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves names through a cache file keyed by InChIKey, asking a delegate
+ * resolver only for molecules not in the cache.
+ *
+ * <p>The cache file has one entry per line, the InChIKey and the name
+ * separated by a tab. It is read completely on construction and new names
+ * are appended as they are resolved, so the file can be shared between runs
+ * and pre-populated from a local name table. Without a delegate the
+ * resolver works offline and only answers from the cache. Molecules the
+ * delegate does not know are remembered for the lifetime of the resolver,
+ * but not persisted.
+ */
+public final class CachedNameResolver implements NameResolver {
+
+  private final Path cacheFile;
+  private final NameResolver delegate;
+  private final Map<String, String> names = new HashMap<>();
+  private final Set<String> unknown = new HashSet<>();
+
+
+  /**
+   * Constructs a resolver and reads the cache file if it exists.
+   *
+   * @param cacheFile
+   *          The cache file.
+   * @param delegate
+   *          The resolver for names not in the cache or null to work
+   *          offline.
+   *
+   * @throws IOException
+   *          If the cache file cannot be read.
+   */
+  public CachedNameResolver(final Path cacheFile, final NameResolver delegate)
+      throws IOException {
+    this.cacheFile = cacheFile;
+    this.delegate = delegate;
+    if (Files.exists(cacheFile)) {
+      this.names.putAll(read(cacheFile));
+    }
+  }
+
+
+  @Override
+  public synchronized String resolve(final String inchiKey,
+      final IAtomContainer molecule) throws IOException {
+    final String cached = this.names.get(inchiKey);
+    if (cached != null || this.delegate == null
+        || this.unknown.contains(inchiKey)) {
+      return cached;
+    }
+    final String name = this.delegate.resolve(inchiKey, molecule);
+    if (name == null) {
+      this.unknown.add(inchiKey);
+      return null;
+    }
+    final Map<String, String> entry = new HashMap<>();
+    entry.put(inchiKey, name);
+    this.store(entry);
+    return name;
+  }
+
+
+  /**
+   * Adds all names of a local table in cache file format to the cache.
+   * Entries already in the cache are kept.
+   *
+   * @param table
+   *          The name table.
+   *
+   * @return The number of names added.
+   *
+   * @throws IOException
+   *          If the table cannot be read or the cache cannot be written.
+   */
+  public synchronized Integer load(final Path table) throws IOException {
+    final Map<String, String> entries = read(table);
+    entries.keySet().removeAll(this.names.keySet());
+    this.store(entries);
+    return entries.size();
+  }
+
+
+  /**
+   * @return The number of cached names.
+   */
+  public synchronized Integer size() {
+    return this.names.size();
+  }
+
+
+  /**
+   * Adds names to the cache and appends them to the cache file.
+   *
+   * @param entries
+   *          The names keyed by InChIKey.
+   *
+   * @throws IOException
+   *          If the cache file cannot be written.
+   */
+  private void store(final Map<String, String> entries) throws IOException {
+    if (entries.isEmpty()) {
+      return;
+    }
+    try (BufferedWriter writer = Files.newBufferedWriter(
+             this.cacheFile, StandardCharsets.UTF_8,
+             StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      for (final Map.Entry<String, String> entry : entries.entrySet()) {
+        final String name = entry.getValue().replaceAll("[\t\r\n]+", " ");
+        writer.write(entry.getKey() + "\t" + name);
+        writer.newLine();
+        this.names.put(entry.getKey(), name);
+      }
+    }
+  }
+
+
+  /**
+   * Reads a file in cache format. Malformed lines are ignored; for
+   * duplicate keys the first entry wins.
+   *
+   * @param file
+   *          The file.
+   *
+   * @return The names keyed by InChIKey.
+   *
+   * @throws IOException
+   *          If the file cannot be read.
+   */
+  private static Map<String, String> read(final Path file)
+      throws IOException {
+    final List<String> lines =
+        Files.readAllLines(file, StandardCharsets.UTF_8);
+    final Map<String, String> result = new LinkedHashMap<>();
+    for (final String line : lines) {
+      final int tab = line.indexOf('\t');
+      if (tab > 0 && tab < line.length() - 1) {
+        result.putIfAbsent(line.substring(0, tab).trim(),
+                           line.substring(tab + 1).trim());
+      }
+    }
+    return result;
+  }
+
+
+  /**
+   * Computes the standard InChIKey of a molecule.
+   *
+   * @param molecule
+   *          The molecule.
+   *
+   * @return The InChIKey.
+   *
+   * @throws CDKException
+   *          If no InChI can be generated for the molecule.
+   */
+  public static String inchiKey(final IAtomContainer molecule)
+      throws CDKException {
+    final InChIGenerator generator =
+        InChIGeneratorFactory.getInstance().getInChIGenerator(molecule);
+    if (generator.getReturnStatus() != INCHI_RET.OKAY
+        && generator.getReturnStatus() != INCHI_RET.WARNING) {
+      throw new CDKException("No InChI generated: "
+          + generator.getMessage());
+    }
+    return generator.getInchiKey();
+  }
+
+}
@@ -0,0 +1,79 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   CactusNameResolver.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 14:11:02 2026
+ *
+ * @brief  Name resolver querying the NCI/CADD chemical identifier resolver.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech.base;
+
+import org.apache.commons.io.IOUtils;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Looks up IUPAC names with the Cactus web service of the NCI/CADD group.
+ */
+public final class CactusNameResolver implements NameResolver {
+
+  private static final String SERVICE =
+      "https://cactus.nci.nih.gov/chemical/structure/";
+  private static final Integer TIMEOUT = 10000;
+
+
+  @Override
+  public String resolve(final String inchiKey, final IAtomContainer molecule)
+      throws IOException {
+    final URL url = new URL(SERVICE + URLEncoder.encode(inchiKey, "UTF-8")
+                            + "/iupac_name");
+    final HttpURLConnection connection =
+        (HttpURLConnection) url.openConnection();
+    connection.setConnectTimeout(TIMEOUT);
+    connection.setReadTimeout(TIMEOUT);
+    try {
+      if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND) {
+        return null;
+      }
+      if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+        throw new IOException("Cactus returned "
+            + connection.getResponseCode() + " for " + inchiKey);
+      }
+      try (InputStream stream = connection.getInputStream()) {
+        final String name =
+            IOUtils.toString(stream, StandardCharsets.UTF_8).trim();
+        final int newline = name.indexOf('\n');
+        return newline < 0 ? name : name.substring(0, newline).trim();
+      }
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+}
@@ -0,0 +1,375 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   EnrichmentServer.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 10:12:40 2026
+ *
+ * @brief  Local enrichment server keeping a warm JVM.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech.base;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Serves enrichment over a local HTTP endpoint from a single warm JVM.
+ *
+ * <p>A molecule is enriched by posting its molfile or CML to
+ * {@code /enrich}. The query parameter {@code format} gives the input format
+ * ({@code mol} by default) and {@code options} the enrichment options as for
+ * {@link App}, separated by blanks. Only options that select the output
+ * and the language are accepted; a request with any other option, or with
+ * a body larger than 4 MiB, is refused. Without options the server defaults
+ * are used. The response is the enriched CML. Enrichment itself runs one
+ * molecule at a time, as it keeps global state; the number of requests
+ * admitted at once is bounded and further requests are refused with 503.
+ */
+public final class EnrichmentServer {
+
+  private static final String PREFIX = "cmlspeech-request";
+  private static final Integer MAX_BODY = 4 << 20;
+  private static final Set<String> FLAGS = new HashSet<>(Arrays.asList(
+      "-a", "-ao", "-t", "-r", "-r0", "-ia", "-nh", "-nn"));
+  private static final Pattern LANGUAGES = Pattern.compile("\\w+(,\\w+)*");
+
+  private final HttpServer server;
+  private final Semaphore admitted;
+  private final String[] defaults;
+  private final Path scratch;
+  private final Object lock = new Object();
+  private final AtomicLong counter = new AtomicLong();
+
+
+  /**
+   * Constructs a server on the loopback interface.
+   *
+   * @param port
+   *          The port to listen on.
+   * @param limit
+   *          The maximal number of requests admitted at once.
+   * @param defaults
+   *          The default enrichment options.
+   *
+   * @throws IOException
+   *          If the server cannot be bound.
+   */
+  public EnrichmentServer(final Integer port, final Integer limit,
+      final String[] defaults) throws IOException {
+    this.admitted = new Semaphore(Math.max(1, limit));
+    this.defaults = defaults;
+    this.scratch = Files.createTempDirectory(PREFIX);
+    this.server = HttpServer.create(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    this.server.createContext("/enrich", this::handleEnrich);
+    this.server.createContext("/health", exchange -> this.respond(
+        exchange, 200, "text/plain", "OK".getBytes(StandardCharsets.UTF_8)));
+    this.server.setExecutor(Executors.newFixedThreadPool(Math.max(1, limit)));
+  }
+
+
+  /**
+   * Starts the server.
+   */
+  public void start() {
+    this.server.start();
+    System.out.println("Enrichment server listening on "
+        + this.server.getAddress());
+  }
+
+
+  /**
+   * Stops the server and removes its scratch directory.
+   */
+  public void stop() {
+    this.server.stop(0);
+    FileUtils.deleteQuietly(this.scratch.toFile());
+  }
+
+
+  /**
+   * Handles a single enrichment request.
+   *
+   * @param exchange
+   *          The HTTP exchange.
+   *
+   * @throws IOException
+   *          If the exchange fails.
+   */
+  private void handleEnrich(final HttpExchange exchange) throws IOException {
+    if (!"POST".equals(exchange.getRequestMethod())) {
+      this.error(exchange, 405, "Molecules have to be posted.");
+      return;
+    }
+    if (!this.admitted.tryAcquire()) {
+      this.error(exchange, 503, "Too many requests.");
+      return;
+    }
+    try {
+      final Map<String, String> query =
+          parseQuery(exchange.getRequestURI().getRawQuery());
+      final String format = query.getOrDefault("format", "mol");
+      if (!format.matches("mol|cml|xml")) {
+        this.error(exchange, 400, "Unknown format " + format + ".");
+        return;
+      }
+      String[] options = this.defaults;
+      if (query.containsKey("options")) {
+        final String requested = query.get("options").trim();
+        options = requested.isEmpty()
+            ? new String[0] : requested.split("\\s+");
+        if (!allowed(options)) {
+          this.error(exchange, 400, "Unsupported options " + requested + ".");
+          return;
+        }
+      }
+      final String length =
+          exchange.getRequestHeaders().getFirst("Content-Length");
+      if (length != null && length.matches("\\d+")
+          && Long.parseLong(length) > MAX_BODY) {
+        this.error(exchange, 413, "Molecule larger than " + MAX_BODY
+            + " bytes.");
+        return;
+      }
+      final byte[] body = IOUtils.toByteArray(new BoundedInputStream(
+          exchange.getRequestBody(), MAX_BODY + 1L));
+      if (body.length > MAX_BODY) {
+        this.error(exchange, 413, "Molecule larger than " + MAX_BODY
+            + " bytes.");
+        return;
+      }
+      final Path input = this.scratch.resolve(
+          PREFIX + this.counter.incrementAndGet() + "." + format);
+      Files.write(input, body);
+      try {
+        final byte[] result = this.enrich(input, options);
+        this.respond(exchange, 200, "application/xml; charset=utf-8", result);
+      } catch (final Exception e) {
+        this.error(exchange, 500, "Enrichment Error: " + e.getMessage());
+      } finally {
+        Files.deleteIfExists(input);
+      }
+    } finally {
+      this.admitted.release();
+    }
+  }
+
+
+  /**
+   * Checks request options against the options the server accepts, so that
+   * a request cannot, e.g., ask for help, which ends the JVM.
+   *
+   * @param options
+   *          The enrichment options of a request.
+   *
+   * @return True if all options are accepted.
+   */
+  private static boolean allowed(final String[] options) {
+    for (int i = 0; i < options.length; i++) {
+      if ("-i".equals(options[i]) && i + 1 < options.length
+          && LANGUAGES.matcher(options[i + 1]).matches()) {
+        i++;
+      } else if (!FLAGS.contains(options[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+
+  /**
+   * Enriches a molecule file and returns the result. Only one molecule is
+   * enriched at a time.
+   *
+   * @param input
+   *          The molecule file.
+   * @param options
+   *          The enrichment options.
+   *
+   * @return The enriched CML.
+   *
+   * @throws Exception
+   *          If enrichment fails.
+   */
+  private byte[] enrich(final Path input, final String[] options)
+      throws Exception {
+    final String[] args = Arrays.copyOf(options, options.length + 1);
+    args[options.length] = input.toString();
+    final Path result = Paths.get(BatchEnricher.outputName(input));
+    synchronized (this.lock) {
+      try {
+        App.main(args);
+        if (!Files.exists(result)) {
+          throw new IOException("No output written.");
+        }
+        return Files.readAllBytes(result);
+      } finally {
+        Files.deleteIfExists(result);
+      }
+    }
+  }
+
+
+  /**
+   * Sends an error message.
+   *
+   * @param exchange
+   *          The HTTP exchange.
+   * @param code
+   *          The status code.
+   * @param message
+   *          The error message.
+   *
+   * @throws IOException
+   *          If the response cannot be sent.
+   */
+  private void error(final HttpExchange exchange, final Integer code,
+      final String message) throws IOException {
+    this.respond(exchange, code, "text/plain; charset=utf-8",
+                 message.getBytes(StandardCharsets.UTF_8));
+  }
+
+
+  /**
+   * Sends a response.
+   *
+   * @param exchange
+   *          The HTTP exchange.
+   * @param code
+   *          The status code.
+   * @param type
+   *          The content type.
+   * @param body
+   *          The response body.
+   *
+   * @throws IOException
+   *          If the response cannot be sent.
+   */
+  private void respond(final HttpExchange exchange, final Integer code,
+      final String type, final byte[] body) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", type);
+    exchange.sendResponseHeaders(code, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+
+  /**
+   * Parses a raw query string.
+   *
+   * @param query
+   *          The query string, possibly null.
+   *
+   * @return A map from parameter names to decoded values.
+   *
+   * @throws UnsupportedEncodingException
+   *          Never, as UTF-8 is always supported.
+   */
+  private static Map<String, String> parseQuery(final String query)
+      throws UnsupportedEncodingException {
+    final Map<String, String> result = new HashMap<>();
+    if (query == null) {
+      return result;
+    }
+    for (final String pair : query.split("&")) {
+      final int equals = pair.indexOf('=');
+      if (equals > 0) {
+        result.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"),
+                   URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+      }
+    }
+    return result;
+  }
+
+
+  /**
+   * Runs the enrichment server.
+   *
+   * @param args
+   *          Server options, optionally followed by {@code --} and the
+   *          default enrichment options.
+   *
+   * @throws IOException
+   *          If the server cannot be started.
+   */
+  public static void main(final String[] args) throws IOException {
+    final int separator = Arrays.asList(args).indexOf("--");
+    final String[] serverArgs = separator < 0
+        ? args : Arrays.copyOfRange(args, 0, separator);
+    final String[] defaults = separator < 0
+        ? new String[0] : Arrays.copyOfRange(args, separator + 1, args.length);
+    final Options options = new Options();
+    options.addOption("p", "port", true, "Port to listen on (default 8228).");
+    options.addOption("c", "concurrency", true,
+                      "Maximal number of requests admitted at once "
+                      + "(default 4).");
+    options.addOption("h", "help", false, "Print this message.");
+    CommandLine cl;
+    try {
+      cl = new BasicParser().parse(options, serverArgs);
+    } catch (final ParseException e) {
+      System.err.println("Error parsing command line: " + e.getMessage());
+      cl = null;
+    }
+    if (cl == null || cl.hasOption("h")) {
+      new HelpFormatter().printHelp(
+          "enrich-server [options] [-- enrichment options]", options);
+      return;
+    }
+    final EnrichmentServer server = new EnrichmentServer(
+        Integer.parseInt(cl.getOptionValue("p", "8228")),
+        Integer.parseInt(cl.getOptionValue("c", "4")), defaults);
+    Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+    server.start();
+  }
+
+}
@@ -0,0 +1,421 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   MoleculeRecordReader.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 13:02:44 2026
+ *
+ * @brief  Lazy reader for files with many molecule records.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech.base;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the molecules of a multi-record file one at a time.
+ *
+ * <p>Two formats are supported: SD files, whose records are mol blocks
+ * terminated by {@code $$$$}, and CML files with several molecules, either
+ * as children of a common root or as concatenated documents. Each outermost
+ * {@code molecule} element is a record; its enclosing start tags are repeated
+ * around it, so namespace declarations are kept. Only the current record is
+ * held in memory.
+ */
+public final class MoleculeRecordReader
+    implements Iterator<MoleculeRecordReader.Record>, Closeable {
+
+  /**
+   * The supported container formats.
+   */
+  public enum Format {
+    SDF("mol"),
+    CML("cml");
+
+    private final String extension;
+
+
+    /**
+     * @param extension
+     *          The file extension of a single record.
+     */
+    Format(final String extension) {
+      this.extension = extension;
+    }
+
+
+    /**
+     * @return The file extension of a single record.
+     */
+    public String getExtension() {
+      return this.extension;
+    }
+  }
+
+  private static final String SDF_DELIMITER = "$$$$";
+  private static final String XML_HEADER =
+      "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+
+  private final BufferedReader reader;
+  private final Format format;
+  private final Deque<String[]> ancestors = new ArrayDeque<>();
+  private Record next = null;
+  private Integer count = 0;
+
+
+  /**
+   * Constructs a reader over a stream of records.
+   *
+   * @param reader
+   *          The character stream.
+   * @param format
+   *          The format of the records.
+   */
+  public MoleculeRecordReader(final Reader reader, final Format format) {
+    this.reader = reader instanceof BufferedReader
+        ? (BufferedReader) reader : new BufferedReader(reader);
+    this.format = format;
+  }
+
+
+  /**
+   * Opens a multi-record file.
+   *
+   * @param file
+   *          The file.
+   * @param format
+   *          The format of the records.
+   *
+   * @return The reader.
+   *
+   * @throws IOException
+   *          If the file cannot be opened.
+   */
+  public static MoleculeRecordReader open(final Path file,
+      final Format format) throws IOException {
+    return new MoleculeRecordReader(
+        Files.newBufferedReader(file, StandardCharsets.UTF_8), format);
+  }
+
+
+  /**
+   * @return The format of the records.
+   */
+  public Format getFormat() {
+    return this.format;
+  }
+
+
+  @Override
+  public boolean hasNext() {
+    if (this.next == null) {
+      try {
+        final String text = this.format == Format.SDF
+            ? this.readSdfRecord() : this.readCmlRecord();
+        if (text != null) {
+          this.count++;
+          this.next = new Record(this.count, text, this.format);
+        }
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return this.next != null;
+  }
+
+
+  @Override
+  public Record next() {
+    if (!this.hasNext()) {
+      throw new NoSuchElementException();
+    }
+    final Record result = this.next;
+    this.next = null;
+    return result;
+  }
+
+
+  @Override
+  public void close() throws IOException {
+    this.reader.close();
+  }
+
+
+  /**
+   * Reads the next mol block of an SD file. Blocks consisting of white space
+   * only are skipped.
+   *
+   * @return The mol block or null at the end of the file.
+   *
+   * @throws IOException
+   *          If the file cannot be read.
+   */
+  private String readSdfRecord() throws IOException {
+    final StringBuilder record = new StringBuilder();
+    boolean empty = true;
+    String line;
+    while ((line = this.reader.readLine()) != null) {
+      if (line.startsWith(SDF_DELIMITER)) {
+        if (!empty) {
+          return record.toString();
+        }
+        record.setLength(0);
+        continue;
+      }
+      empty = empty && line.trim().isEmpty();
+      record.append(line).append('\n');
+    }
+    return empty ? null : record.toString();
+  }
+
+
+  /**
+   * Reads the next outermost molecule element of a CML file, wrapped in the
+   * start tags enclosing it. The names and start tags of the open enclosing
+   * elements are kept between records.
+   *
+   * @return The CML document or null at the end of the file.
+   *
+   * @throws IOException
+   *          If the file cannot be read.
+   */
+  private String readCmlRecord() throws IOException {
+    final Deque<String[]> ancestors = this.ancestors;
+    StringBuilder record = null;
+    int depth = 0;
+    int c;
+    while ((c = this.reader.read()) != -1) {
+      if (c != '<') {
+        if (record != null) {
+          record.append((char) c);
+        }
+        continue;
+      }
+      final String tag = this.readTag();
+      if (record != null) {
+        record.append(tag);
+      }
+      if (tag.startsWith("<!") || tag.startsWith("<?")) {
+        continue;
+      }
+      final String name = tagName(tag);
+      final boolean end = tag.startsWith("</");
+      final boolean empty = tag.endsWith("/>");
+      final String local = name.substring(name.indexOf(':') + 1);
+      if (local.equals("molecule")) {
+        if (record == null) {
+          record = new StringBuilder(XML_HEADER);
+          final Iterator<String[]> outer = ancestors.descendingIterator();
+          while (outer.hasNext()) {
+            record.append(outer.next()[1]);
+          }
+          record.append(tag);
+        }
+        depth += end ? -1 : empty ? 0 : 1;
+        if (depth <= 0) {
+          for (final String[] ancestor : ancestors) {
+            record.append("</").append(ancestor[0]).append('>');
+          }
+          return record.toString();
+        }
+      } else if (record == null && !empty) {
+        if (end) {
+          ancestors.poll();
+        } else {
+          ancestors.push(new String[] {name, tag});
+        }
+      }
+    }
+    return null;
+  }
+
+
+  /**
+   * Reads the remainder of a tag, comment, processing instruction or CDATA
+   * section whose opening bracket has been consumed.
+   *
+   * @return The full text of the markup.
+   *
+   * @throws IOException
+   *          If the file cannot be read.
+   */
+  private String readTag() throws IOException {
+    final StringBuilder tag = new StringBuilder("<");
+    char quote = 0;
+    int c;
+    while ((c = this.reader.read()) != -1) {
+      tag.append((char) c);
+      if (tag.length() == 4 && tag.toString().equals("<!--")) {
+        return this.readUntil(tag, "-->");
+      }
+      if (tag.length() == 9 && tag.toString().equals("<![CDATA[")) {
+        return this.readUntil(tag, "]]>");
+      }
+      if (quote != 0) {
+        quote = c == quote ? 0 : quote;
+      } else if (c == '"' || c == '\'') {
+        quote = (char) c;
+      } else if (c == '>') {
+        break;
+      }
+    }
+    return tag.toString();
+  }
+
+
+  /**
+   * Appends characters until a terminator has been read.
+   *
+   * @param text
+   *          The text read so far.
+   * @param terminator
+   *          The terminating string.
+   *
+   * @return The text including the terminator.
+   *
+   * @throws IOException
+   *          If the file cannot be read.
+   */
+  private String readUntil(final StringBuilder text, final String terminator)
+      throws IOException {
+    int c;
+    while ((c = this.reader.read()) != -1) {
+      text.append((char) c);
+      if (c == terminator.charAt(terminator.length() - 1)
+          && text.length() >= terminator.length()
+          && text.substring(text.length() - terminator.length())
+          .equals(terminator)) {
+        break;
+      }
+    }
+    return text.toString();
+  }
+
+
+  /**
+   * @param tag
+   *          A start or end tag.
+   *
+   * @return The qualified name of the element.
+   */
+  private static String tagName(final String tag) {
+    final int start = tag.startsWith("</") ? 2 : 1;
+    int end = start;
+    while (end < tag.length() && !Character.isWhitespace(tag.charAt(end))
+           && tag.charAt(end) != '>' && tag.charAt(end) != '/') {
+      end++;
+    }
+    return tag.substring(start, end);
+  }
+
+
+  /**
+   * A single molecule record.
+   */
+  public static final class Record {
+
+    private final Integer index;
+    private final String text;
+    private final Format format;
+
+
+    /**
+     * Constructs a record.
+     *
+     * @param index
+     *          The position of the record in the file, starting with 1.
+     * @param text
+     *          The text of the record as a stand-alone molecule file.
+     * @param format
+     *          The format of the record.
+     */
+    private Record(final Integer index, final String text,
+        final Format format) {
+      this.index = index;
+      this.text = text;
+      this.format = format;
+    }
+
+
+    /**
+     * @return The position of the record in the file, starting with 1.
+     */
+    public Integer getIndex() {
+      return this.index;
+    }
+
+
+    /**
+     * @return The text of the record as a stand-alone molecule file.
+     */
+    public String getText() {
+      return this.text;
+    }
+
+
+    /**
+     * @return The title of an SDF record, the empty string otherwise.
+     */
+    public String getTitle() {
+      if (this.format != Format.SDF) {
+        return "";
+      }
+      final int newline = this.text.indexOf('\n');
+      return (newline < 0 ? this.text : this.text.substring(0, newline))
+          .trim();
+    }
+
+
+    /**
+     * Writes the record to a file of its own.
+     *
+     * @param directory
+     *          The directory to write to.
+     * @param base
+     *          The base name of the container file.
+     *
+     * @return The file named after the container and the record index.
+     *
+     * @throws IOException
+     *          If the file cannot be written.
+     */
+    public Path write(final Path directory, final String base)
+        throws IOException {
+      final Path file = directory.resolve(
+          base + "-" + this.index + "." + this.format.getExtension());
+      Files.write(file, this.text.getBytes(StandardCharsets.UTF_8));
+      return file;
+    }
+
+  }
+
+}
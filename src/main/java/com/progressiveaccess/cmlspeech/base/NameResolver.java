@@ -0,0 +1,56 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   NameResolver.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 14:05:27 2026
+ *
+ * @brief  Interface for looking up molecule names.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech.base;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import java.io.IOException;
+
+/**
+ * Looks up the name of a molecule. Molecules are identified by their
+ * standard InChIKey, which implementations can use as a cache key.
+ */
+public interface NameResolver {
+
+  /**
+   * Resolves the name of a molecule.
+   *
+   * @param inchiKey
+   *          The standard InChIKey of the molecule.
+   * @param molecule
+   *          The molecule.
+   *
+   * @return The name or null if it is not known.
+   *
+   * @throws IOException
+   *          If the lookup fails.
+   */
+  String resolve(String inchiKey, IAtomContainer molecule) throws IOException;
+
+}
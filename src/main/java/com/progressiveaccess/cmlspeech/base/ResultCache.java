@@ -0,0 +1,712 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   ResultCache.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 14:52:19 2026
+ *
+ * @brief  Cache of enriched output keyed by canonical structure.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech.base;
+
+import nu.xom.Attribute;
+import nu.xom.Builder;
+import nu.xom.Document;
+import nu.xom.Element;
+import nu.xom.Elements;
+import nu.xom.ParsingException;
+import nu.xom.Text;
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.geometry.GeometryUtil;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.interfaces.IChemFile;
+import org.openscience.cdk.io.CMLReader;
+import org.openscience.cdk.io.MDLV2000Reader;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.smiles.SmilesGenerator;
+import org.openscience.cdk.stereo.StereoElementFactory;
+import org.openscience.cdk.tools.manipulator.ChemFileManipulator;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.vecmath.Point2d;
+import javax.vecmath.Point3d;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+/**
+ * Caches enriched molecules so that duplicates in a corpus are only
+ * analysed once.
+ *
+ * <p>Entries are keyed by the isomeric SMILES of the input molecule,
+ * written in canonical atom order, together with the enrichment options, so
+ * that stereoisomers and isotopologues are cached apart. Stereo
+ * configurations are perceived from the coordinates if the input does not
+ * state them. As the canonical order does not consider stereo, symmetric
+ * atoms can make a stereoisomer come out in different ways, which only
+ * costs a miss. Along with the output the cache stores the identifiers of
+ * atoms and bonds under their canonical labels.
+ *
+ * <p>On a hit the stored output is parsed and every reference to an atom or
+ * bond, in identifiers, reference attributes and atom and bond sets, is
+ * replaced by that of the same atom or bond in the new molecule. The atom
+ * and bond elements are then given the coordinates, the atom order of bonds
+ * and wedges of the new molecule, so that only the annotations are taken
+ * from the first copy enriched. An output that cannot be parsed counts as a
+ * miss.
+ *
+ * <p>The in-memory tier holds a bounded number of entries and evicts the
+ * least recently used. The optional disk tier is a directory with one file
+ * per entry, holding the labels and the output; entries are written
+ * atomically, so the directory can be shared by worker JVMs and later runs.
+ */
+public final class ResultCache {
+
+  private static final String ENTRY = ".entry";
+  private static final String CML = "http://www.xml-cml.org/schema";
+  private static final String SRE = "http://www.chemaccess.org/sre-schema";
+  private static final Pattern TOKEN = Pattern.compile("\\S+");
+
+  private final Map<String, Entry> memory;
+  private final Path directory;
+  private Integer hits = 0;
+  private Integer misses = 0;
+
+
+  /**
+   * Constructs a cache.
+   *
+   * @param capacity
+   *          The maximal number of entries held in memory.
+   * @param directory
+   *          The directory of the disk tier or null for memory only.
+   *
+   * @throws IOException
+   *          If the directory cannot be created.
+   */
+  public ResultCache(final Integer capacity, final Path directory)
+      throws IOException {
+    this.memory = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(
+          final Map.Entry<String, Entry> eldest) {
+        return this.size() > capacity;
+      }
+    };
+    this.directory = directory;
+    if (directory != null) {
+      Files.createDirectories(directory);
+    }
+  }
+
+
+  /**
+   * Computes the cache key of a molecule file.
+   *
+   * @param file
+   *          The molecule file, a mol file or CML.
+   * @param options
+   *          The enrichment options.
+   *
+   * @return The key.
+   *
+   * @throws IOException
+   *          If the file cannot be read.
+   * @throws CDKException
+   *          If the molecule cannot be read or canonicalised.
+   */
+  public static Key key(final Path file, final String[] options)
+      throws IOException, CDKException {
+    return new Key(read(file), options);
+  }
+
+
+  /**
+   * Computes the cache key of a molecule. The molecule is given implicit
+   * hydrogen counts and stereo elements where it has none.
+   *
+   * @param molecule
+   *          The molecule, as read from a mol file or CML.
+   * @param options
+   *          The enrichment options.
+   *
+   * @return The key.
+   *
+   * @throws CDKException
+   *          If the molecule cannot be canonicalised.
+   */
+  public static Key key(final IAtomContainer molecule,
+      final String[] options) throws CDKException {
+    return new Key(molecule, options);
+  }
+
+
+  /**
+   * Looks up the enriched output for a molecule.
+   *
+   * @param key
+   *          The key of the molecule.
+   *
+   * @return The output with identifiers of the molecule or null.
+   */
+  public synchronized String get(final Key key) {
+    Entry entry = this.memory.get(key.digest);
+    if (entry == null && this.directory != null) {
+      entry = this.readEntry(key.digest);
+      if (entry != null) {
+        this.memory.put(key.digest, entry);
+      }
+    }
+    final String output = entry == null ? null : entry.remap(key);
+    if (output == null) {
+      this.misses++;
+      return null;
+    }
+    this.hits++;
+    return output;
+  }
+
+
+  /**
+   * Stores the enriched output of a molecule.
+   *
+   * @param key
+   *          The key of the molecule.
+   * @param output
+   *          The enriched output.
+   *
+   * @throws IOException
+   *          If the disk tier cannot be written.
+   */
+  public synchronized void put(final Key key, final String output)
+      throws IOException {
+    final Entry entry = new Entry(output, key.labels);
+    this.memory.put(key.digest, entry);
+    if (this.directory != null) {
+      this.writeEntry(key.digest, entry);
+    }
+  }
+
+
+  /**
+   * @return The number of lookups answered from the cache.
+   */
+  public synchronized Integer getHits() {
+    return this.hits;
+  }
+
+
+  /**
+   * @return The number of lookups not answered from the cache.
+   */
+  public synchronized Integer getMisses() {
+    return this.misses;
+  }
+
+
+  /**
+   * Reads an entry from the disk tier.
+   *
+   * @param digest
+   *          The digest of the key.
+   *
+   * @return The entry or null if there is none or it cannot be read.
+   */
+  private Entry readEntry(final String digest) {
+    final Path file = this.directory.resolve(digest + ENTRY);
+    if (!Files.exists(file)) {
+      return null;
+    }
+    try {
+      final String text = new String(Files.readAllBytes(file),
+                                     StandardCharsets.UTF_8);
+      int header = text.indexOf("\n\n");
+      if (text.startsWith("\n")) {
+        header = -1;
+      } else if (header < 0) {
+        return null;
+      }
+      final Map<String, String> ids = new HashMap<>();
+      for (final String line : text.substring(0, header + 1).split("\n")) {
+        final int tab = line.indexOf('\t');
+        if (tab > 0) {
+          ids.put(line.substring(0, tab), line.substring(tab + 1));
+        }
+      }
+      return new Entry(text.substring(header + 2), ids);
+    } catch (final IOException e) {
+      return null;
+    }
+  }
+
+
+  /**
+   * Writes an entry to the disk tier as a single file, the identifiers by
+   * canonical label followed by an empty line and the output. The file is
+   * written under a temporary name and moved into place, so that readers
+   * never see a partial entry.
+   *
+   * @param digest
+   *          The digest of the key.
+   * @param entry
+   *          The entry.
+   *
+   * @throws IOException
+   *          If the entry cannot be written.
+   */
+  private void writeEntry(final String digest, final Entry entry)
+      throws IOException {
+    final StringBuilder text = new StringBuilder();
+    for (final Map.Entry<String, String> label : entry.ids.entrySet()) {
+      text.append(label.getKey()).append('\t').append(label.getValue())
+          .append('\n');
+    }
+    text.append('\n').append(entry.output);
+    final Path file = Files.createTempFile(this.directory, digest, ".tmp");
+    try {
+      Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+      Files.move(file, this.directory.resolve(digest + ENTRY),
+                 StandardCopyOption.REPLACE_EXISTING,
+                 StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+
+  /**
+   * Reads the first molecule of a mol or CML file.
+   *
+   * @param file
+   *          The file.
+   *
+   * @return The molecule.
+   *
+   * @throws IOException
+   *          If the file cannot be read.
+   * @throws CDKException
+   *          If the file contains no molecule.
+   */
+  static IAtomContainer read(final Path file)
+      throws IOException, CDKException {
+    final String name = file.getFileName().toString().toLowerCase();
+    try (InputStream stream = Files.newInputStream(file)) {
+      if (name.endsWith(".mol")) {
+        try (MDLV2000Reader reader = new MDLV2000Reader(stream)) {
+          return reader.read(SilentChemObjectBuilder.getInstance()
+                             .newInstance(IAtomContainer.class));
+        }
+      }
+      try (CMLReader reader = new CMLReader(stream)) {
+        final List<IAtomContainer> molecules =
+            ChemFileManipulator.getAllAtomContainers(
+                reader.read(SilentChemObjectBuilder.getInstance()
+                            .newInstance(IChemFile.class)));
+        if (molecules.isEmpty()) {
+          throw new CDKException("No molecule in " + file);
+        }
+        return molecules.get(0);
+      }
+    }
+  }
+
+
+  /**
+   * The key of a molecule: a digest of its canonical isomeric SMILES and the
+   * options, the identifiers of its atoms and bonds by canonical label, and
+   * its atoms and bonds by identifier.
+   */
+  public static final class Key {
+
+    private final String digest;
+    private final Map<String, String> labels = new HashMap<>();
+    private final Map<String, IAtom> atoms = new HashMap<>();
+    private final Map<String, IBond> bonds = new HashMap<>();
+    private final Map<IAtom, String> atomIds = new IdentityHashMap<>();
+
+
+    /**
+     * Computes the key of a molecule. Atoms and bonds without identifier
+     * are named a1, a2, ... and b1, b2, ... in file order, as in the
+     * enriched output.
+     *
+     * @param molecule
+     *          The molecule.
+     * @param options
+     *          The enrichment options.
+     *
+     * @throws CDKException
+     *          If the molecule cannot be canonicalised.
+     */
+    private Key(final IAtomContainer molecule, final String[] options)
+        throws CDKException {
+      for (final IAtom atom : molecule.atoms()) {
+        if (atom.getImplicitHydrogenCount() == null) {
+          atom.setImplicitHydrogenCount(0);
+        }
+      }
+      if (!molecule.stereoElements().iterator().hasNext()) {
+        if (GeometryUtil.has3DCoordinates(molecule)) {
+          molecule.setStereoElements(
+              StereoElementFactory.using3DCoordinates(molecule).createAll());
+        } else if (GeometryUtil.has2DCoordinates(molecule)) {
+          molecule.setStereoElements(
+              StereoElementFactory.using2DCoordinates(molecule).createAll());
+        }
+      }
+      final int[] order = new int[molecule.getAtomCount()];
+      SmilesGenerator.unique().create(molecule, order);
+      final String smiles =
+          SmilesGenerator.isomeric().create(canonical(molecule, order));
+      for (int i = 0; i < molecule.getAtomCount(); i++) {
+        final IAtom atom = molecule.getAtom(i);
+        final String id = atom.getID() == null ? "a" + (i + 1) : atom.getID();
+        this.labels.put(String.valueOf(order[i]), id);
+        this.atoms.put(id, atom);
+        this.atomIds.put(atom, id);
+      }
+      for (int i = 0; i < molecule.getBondCount(); i++) {
+        final IBond bond = molecule.getBond(i);
+        final int u = order[molecule.getAtomNumber(bond.getAtom(0))];
+        final int v = order[molecule.getAtomNumber(bond.getAtom(1))];
+        final String id = bond.getID() == null ? "b" + (i + 1) : bond.getID();
+        this.labels.put(Math.min(u, v) + "-" + Math.max(u, v), id);
+        this.bonds.put(id, bond);
+      }
+      this.digest = digest(smiles + "\u0000" + String.join(" ", options));
+    }
+
+
+    /**
+     * @param molecule
+     *          A molecule.
+     * @param order
+     *          The canonical position of every atom.
+     *
+     * @return The molecule with atoms and bonds in canonical order.
+     */
+    private static IAtomContainer canonical(final IAtomContainer molecule,
+        final int[] order) {
+      final IAtom[] atoms = new IAtom[molecule.getAtomCount()];
+      for (int i = 0; i < atoms.length; i++) {
+        atoms[order[i]] = molecule.getAtom(i);
+      }
+      final List<IBond> bonds = new ArrayList<>();
+      molecule.bonds().forEach(bonds::add);
+      final Comparator<IBond> first = Comparator.comparingInt(
+          b -> Math.min(order[molecule.getAtomNumber(b.getAtom(0))],
+                        order[molecule.getAtomNumber(b.getAtom(1))]));
+      bonds.sort(first.thenComparingInt(
+          b -> Math.max(order[molecule.getAtomNumber(b.getAtom(0))],
+                        order[molecule.getAtomNumber(b.getAtom(1))])));
+      final IAtomContainer result =
+          molecule.getBuilder().newInstance(IAtomContainer.class);
+      result.setAtoms(atoms);
+      result.setBonds(bonds.toArray(new IBond[bonds.size()]));
+      molecule.stereoElements().forEach(result::addStereoElement);
+      return result;
+    }
+
+
+    /**
+     * @return The hex digest identifying the entry.
+     */
+    public String getDigest() {
+      return this.digest;
+    }
+
+
+    /**
+     * @param text
+     *          A string.
+     *
+     * @return The hex SHA-256 digest of the string.
+     */
+    private static String digest(final String text) {
+      try {
+        final StringBuilder result = new StringBuilder();
+        for (final byte b : MessageDigest.getInstance("SHA-256").digest(
+                 text.getBytes(StandardCharsets.UTF_8))) {
+          result.append(String.format("%02x", b));
+        }
+        return result.toString();
+      } catch (final NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+  }
+
+
+  /**
+   * A cached output with the identifiers of the molecule it was produced
+   * for.
+   */
+  private static final class Entry {
+
+    private final String output;
+    private final Map<String, String> ids;
+
+
+    /**
+     * @param output
+     *          The enriched output.
+     * @param ids
+     *          The atom and bond identifiers by canonical label.
+     */
+    private Entry(final String output, final Map<String, String> ids) {
+      this.output = output;
+      this.ids = ids;
+    }
+
+
+    /**
+     * Adapts the output to another molecule with the same canonical labels.
+     *
+     * @param key
+     *          The key of the other molecule.
+     *
+     * @return The output for the other molecule or null if the output
+     *     cannot be parsed.
+     */
+    private String remap(final Key key) {
+      final Map<String, String> mapping = new HashMap<>();
+      for (final Map.Entry<String, String> id : this.ids.entrySet()) {
+        final String target = key.labels.get(id.getKey());
+        if (target != null) {
+          mapping.put(id.getValue(), target);
+        }
+      }
+      final Document document;
+      try {
+        final SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        final XMLReader reader = factory.newSAXParser().getXMLReader();
+        reader.setErrorHandler(new DefaultHandler());
+        document = new Builder(reader).build(new StringReader(this.output));
+      } catch (final ParsingException | IOException
+               | ParserConfigurationException | SAXException e) {
+        return null;
+      }
+      remap(document.getRootElement(), mapping, key);
+      return this.output.startsWith("<?xml")
+          ? document.toXML() : document.getRootElement().toXML();
+    }
+
+
+    /**
+     * Replaces the atom and bond references in an element and its
+     * descendants and splices in the atoms and bonds of the molecule.
+     *
+     * @param element
+     *          The element.
+     * @param mapping
+     *          The new identifiers by cached identifier.
+     * @param key
+     *          The key of the new molecule.
+     */
+    private static void remap(final Element element,
+        final Map<String, String> mapping, final Key key) {
+      for (int i = 0; i < element.getAttributeCount(); i++) {
+        final Attribute attribute = element.getAttribute(i);
+        if (attribute.getLocalName().startsWith("atomRef")
+            || attribute.getLocalName().startsWith("bondRef")) {
+          attribute.setValue(tokens(attribute.getValue(), mapping));
+        }
+      }
+      final String name = element.getLocalName();
+      final boolean cml = CML.equals(element.getNamespaceURI());
+      if (cml && ("atom".equals(name) || "bond".equals(name))) {
+        final Attribute id = element.getAttribute("id");
+        if (id != null) {
+          id.setValue(tokens(id.getValue(), mapping));
+          if ("atom".equals(name)) {
+            splice(element, key.atoms.get(id.getValue()));
+          } else {
+            splice(element, key.bonds.get(id.getValue()), key);
+          }
+        }
+      } else if (cml && ("atomSet".equals(name) || "bondSet".equals(name))
+                 || SRE.equals(element.getNamespaceURI())
+                 && ("atom".equals(name) || "bond".equals(name))) {
+        for (int i = 0; i < element.getChildCount(); i++) {
+          if (element.getChild(i) instanceof Text) {
+            final Text text = (Text) element.getChild(i);
+            text.setValue(tokens(text.getValue(), mapping));
+          }
+        }
+      }
+      for (final Element child : elements(element)) {
+        remap(child, mapping, key);
+      }
+    }
+
+
+    /**
+     * Gives an atom element the coordinates of an atom.
+     *
+     * @param element
+     *          The atom element.
+     * @param atom
+     *          The atom or null if there is none.
+     */
+    private static void splice(final Element element, final IAtom atom) {
+      if (atom == null) {
+        return;
+      }
+      final Point2d point2d = atom.getPoint2d();
+      coordinate(element, "x2", point2d == null ? null : point2d.x);
+      coordinate(element, "y2", point2d == null ? null : point2d.y);
+      final Point3d point3d = atom.getPoint3d();
+      coordinate(element, "x3", point3d == null ? null : point3d.x);
+      coordinate(element, "y3", point3d == null ? null : point3d.y);
+      coordinate(element, "z3", point3d == null ? null : point3d.z);
+    }
+
+
+    /**
+     * Gives a bond element the atom order and wedge of a bond.
+     *
+     * @param element
+     *          The bond element.
+     * @param bond
+     *          The bond or null if there is none.
+     * @param key
+     *          The key of the molecule of the bond.
+     */
+    private static void splice(final Element element, final IBond bond,
+        final Key key) {
+      if (bond == null || bond.getAtomCount() != 2) {
+        return;
+      }
+      final IBond.Stereo stereo = bond.getStereo();
+      final boolean inverted = stereo == IBond.Stereo.UP_INVERTED
+          || stereo == IBond.Stereo.DOWN_INVERTED;
+      final String first = key.atomIds.get(bond.getAtom(inverted ? 1 : 0));
+      final String second = key.atomIds.get(bond.getAtom(inverted ? 0 : 1));
+      element.addAttribute(new Attribute("atomRefs2", first + " " + second));
+      for (final Element child : elements(element)) {
+        if (CML.equals(child.getNamespaceURI())
+            && "bondStereo".equals(child.getLocalName())) {
+          element.removeChild(child);
+        }
+      }
+      String wedge = null;
+      if (stereo == IBond.Stereo.UP || stereo == IBond.Stereo.UP_INVERTED) {
+        wedge = "W";
+      } else if (stereo == IBond.Stereo.DOWN
+                 || stereo == IBond.Stereo.DOWN_INVERTED) {
+        wedge = "H";
+      }
+      if (wedge != null) {
+        final Element child = new Element("bondStereo", CML);
+        child.appendChild(wedge);
+        element.appendChild(child);
+      }
+    }
+
+
+    /**
+     * Sets or removes a coordinate attribute.
+     *
+     * @param element
+     *          The atom element.
+     * @param name
+     *          The name of the attribute.
+     * @param value
+     *          The coordinate or null to remove the attribute.
+     */
+    private static void coordinate(final Element element, final String name,
+        final Double value) {
+      final Attribute attribute = element.getAttribute(name);
+      if (value != null) {
+        element.addAttribute(new Attribute(name, value.toString()));
+      } else if (attribute != null) {
+        element.removeAttribute(attribute);
+      }
+    }
+
+
+    /**
+     * @param element
+     *          An element.
+     *
+     * @return The child elements, copied so that they can be removed.
+     */
+    private static List<Element> elements(final Element element) {
+      final List<Element> result = new ArrayList<>();
+      final Elements children = element.getChildElements();
+      for (int i = 0; i < children.size(); i++) {
+        result.add(children.get(i));
+      }
+      return result;
+    }
+
+
+    /**
+     * @param text
+     *          Whitespace separated references.
+     * @param mapping
+     *          The new identifiers by cached identifier.
+     *
+     * @return The text with every reference replaced that has a mapping.
+     */
+    private static String tokens(final String text,
+        final Map<String, String> mapping) {
+      final Matcher matcher = TOKEN.matcher(text);
+      final StringBuffer result = new StringBuffer(text.length());
+      while (matcher.find()) {
+        final String target = mapping.get(matcher.group());
+        matcher.appendReplacement(result, Matcher.quoteReplacement(
+            target == null ? matcher.group() : target));
+      }
+      matcher.appendTail(result);
+      return result.toString();
+    }
+
+  }
+
+}
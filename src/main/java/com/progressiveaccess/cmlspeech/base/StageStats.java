@@ -0,0 +1,281 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   StageStats.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 16:20:54 2026
+ *
+ * @brief  Per-molecule timing and allocation of enrichment stages.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech.base;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Records wall clock time and allocated bytes of the stages of enriching a
+ * molecule, and writes one tab separated row per molecule and stage.
+ *
+ * <p>Timing uses {@link System#nanoTime()}; allocation is read from the
+ * HotSpot thread MXBean of the current thread, and reported as -1 where
+ * that is not available. Both cost well under a microsecond per stage.
+ * Stages are measured on the thread that runs them and must not overlap.
+ */
+public final class StageStats implements Closeable {
+
+  /** The header line of the report. */
+  public static final String HEADER =
+      "molecule\tatoms\tbonds\tstage\tmillis\tbytes";
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      allocationBean();
+
+  private final BufferedWriter writer;
+  private final Map<String, long[]> current = new LinkedHashMap<>();
+  private final Map<String, long[]> totals = new LinkedHashMap<>();
+  private String molecule = null;
+  private Integer atoms = 0;
+  private Integer bonds = 0;
+
+
+  /**
+   * Opens a report.
+   *
+   * @param report
+   *          The file to write the rows to.
+   *
+   * @throws IOException
+   *          If the file cannot be written.
+   */
+  public StageStats(final Path report) throws IOException {
+    this.writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8);
+    this.writer.write(HEADER);
+    this.writer.newLine();
+  }
+
+
+  /**
+   * Starts recording a molecule.
+   *
+   * @param name
+   *          The name of the molecule in the report.
+   */
+  public void begin(final String name) {
+    this.molecule = name;
+    this.atoms = 0;
+    this.bonds = 0;
+    this.current.clear();
+  }
+
+
+  /**
+   * Starts timing a stage of the current molecule. Repeated stages are
+   * summed.
+   *
+   * @param stage
+   *          The name of the stage.
+   *
+   * @return The timer to close at the end of the stage.
+   */
+  public Timer time(final String stage) {
+    return new Timer(stage);
+  }
+
+
+  /**
+   * Sets the size of the current molecule.
+   *
+   * @param atomCount
+   *          The number of atoms.
+   * @param bondCount
+   *          The number of bonds.
+   */
+  public void count(final Integer atomCount, final Integer bondCount) {
+    this.atoms = atomCount;
+    this.bonds = bondCount;
+  }
+
+
+  /**
+   * Writes the rows of the current molecule and adds them to the totals.
+   *
+   * @throws IOException
+   *          If the report cannot be written.
+   */
+  public void end() throws IOException {
+    for (final Map.Entry<String, long[]> stage : this.current.entrySet()) {
+      final long[] value = stage.getValue();
+      this.writer.write(String.format(
+          Locale.ROOT, "%s\t%d\t%d\t%s\t%.3f\t%d",
+          this.molecule, this.atoms, this.bonds, stage.getKey(),
+          value[0] / 1e6, value[1]));
+      this.writer.newLine();
+      this.add(stage.getKey(), value[0], value[1]);
+    }
+    this.current.clear();
+  }
+
+
+  /**
+   * Copies the rows of another report, e.g., of a worker JVM, into this one
+   * and adds them to the totals.
+   *
+   * @param report
+   *          The other report. Ignored if it does not exist.
+   *
+   * @throws IOException
+   *          If a report cannot be read or written.
+   */
+  public void merge(final Path report) throws IOException {
+    if (!Files.exists(report)) {
+      return;
+    }
+    for (final String line
+             : Files.readAllLines(report, StandardCharsets.UTF_8)) {
+      final String[] fields = line.split("\t");
+      if (fields.length != 6 || line.equals(HEADER)) {
+        continue;
+      }
+      this.writer.write(line);
+      this.writer.newLine();
+      this.add(fields[3], Math.round(Double.parseDouble(fields[4]) * 1e6),
+               Long.parseLong(fields[5]));
+    }
+  }
+
+
+  /**
+   * Adds a measurement to the totals of a stage.
+   *
+   * @param stage
+   *          The name of the stage.
+   * @param nanos
+   *          The time in nanoseconds.
+   * @param bytes
+   *          The allocated bytes or -1 if unknown.
+   */
+  private void add(final String stage, final long nanos, final long bytes) {
+    final long[] total = this.totals.computeIfAbsent(stage, k -> new long[3]);
+    total[0] += nanos;
+    total[1] = bytes < 0 || total[1] < 0 ? -1 : total[1] + bytes;
+    total[2]++;
+  }
+
+
+  /**
+   * @return One line per stage with the mean time and allocation over all
+   *     molecules recorded.
+   */
+  public String summary() {
+    final StringBuilder result = new StringBuilder();
+    for (final Map.Entry<String, long[]> stage : this.totals.entrySet()) {
+      final long[] total = stage.getValue();
+      result.append(String.format(Locale.ROOT,
+          "%-10s %10.3f ms %14d bytes  (%d)%n",
+          stage.getKey(), total[0] / 1e6 / total[2],
+          total[1] < 0 ? -1 : total[1] / total[2], total[2]));
+    }
+    return result.toString();
+  }
+
+
+  @Override
+  public void close() throws IOException {
+    this.writer.close();
+  }
+
+
+  /**
+   * @return The number of bytes allocated by the current thread so far or
+   *     -1 if unknown.
+   */
+  private static long allocated() {
+    return THREADS == null
+        ? -1 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+
+  /**
+   * @return The thread MXBean if it supports allocation counting, null
+   *     otherwise.
+   */
+  private static com.sun.management.ThreadMXBean allocationBean() {
+    try {
+      final java.lang.management.ThreadMXBean bean =
+          ManagementFactory.getThreadMXBean();
+      if (bean instanceof com.sun.management.ThreadMXBean) {
+        final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) bean;
+        if (threads.isThreadAllocatedMemorySupported()) {
+          threads.setThreadAllocatedMemoryEnabled(true);
+          return threads;
+        }
+      }
+    } catch (final LinkageError | UnsupportedOperationException e) {
+      // Not a HotSpot VM.
+    }
+    return null;
+  }
+
+
+  /**
+   * Measures one stage; to be used in a try-with-resources statement.
+   */
+  public final class Timer implements AutoCloseable {
+
+    private final String stage;
+    private final long start;
+    private final long bytes;
+
+
+    /**
+     * @param stage
+     *          The name of the stage.
+     */
+    private Timer(final String stage) {
+      this.stage = stage;
+      this.bytes = allocated();
+      this.start = System.nanoTime();
+    }
+
+
+    @Override
+    public void close() {
+      final long time = System.nanoTime() - this.start;
+      final long end = allocated();
+      final long[] value = StageStats.this.current.computeIfAbsent(
+          this.stage, k -> new long[2]);
+      value[0] += time;
+      value[1] = end < 0 || value[1] < 0 ? -1 : value[1] + end - this.bytes;
+    }
+
+  }
+
+}
@@ -0,0 +1,337 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   SreAnnotation.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 18:40:27 2026
+ *
+ * @brief  One annotation of the navigation structure.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech.sre;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The annotation of one atom, bond or atom set as read by the navigator:
+ * its parents, position, children, component and neighbours, together with
+ * the speech attributes. Elements are referenced by kind and identifier.
+ */
+public final class SreAnnotation {
+
+  /**
+   * The kinds of annotated elements, with their element names.
+   */
+  public enum Kind {
+    ATOM("atom"),
+    BOND("bond"),
+    ATOM_SET("atomSet");
+
+    private final String tag;
+
+
+    /**
+     * @param tag
+     *          The element name.
+     */
+    Kind(final String tag) {
+      this.tag = tag;
+    }
+
+
+    /**
+     * @return The element name.
+     */
+    public String getTag() {
+      return this.tag;
+    }
+
+
+    /**
+     * @param tag
+     *          An element name.
+     *
+     * @return The kind with that element name or null.
+     */
+    public static Kind fromTag(final String tag) {
+      for (final Kind kind : values()) {
+        if (kind.tag.equals(tag)) {
+          return kind;
+        }
+      }
+      return null;
+    }
+  }
+
+  private final Reference element;
+  private final Map<String, String> attributes = new LinkedHashMap<>();
+  private final List<Reference> parents = new ArrayList<>();
+  private final List<Reference> children = new ArrayList<>();
+  private final List<Reference> component = new ArrayList<>();
+  private final List<Neighbour> neighbours = new ArrayList<>();
+  private Integer position = null;
+
+
+  /**
+   * @param element
+   *          The annotated element.
+   */
+  public SreAnnotation(final Reference element) {
+    this.element = element;
+  }
+
+
+  /**
+   * @return The annotated element.
+   */
+  public Reference getElement() {
+    return this.element;
+  }
+
+
+  /**
+   * @return The identifier of the annotated element.
+   */
+  public String getId() {
+    return this.element.getId();
+  }
+
+
+  /**
+   * @return The key of the annotation in the navigator: the identifier,
+   *     followed by that of the first parent for atoms, which are annotated
+   *     once for every set they belong to.
+   */
+  public String getKey() {
+    return this.element.getKind() != Kind.ATOM || this.parents.isEmpty()
+        ? this.getId() : this.getId() + this.parents.get(0).getId();
+  }
+
+
+  /**
+   * @return The attributes of the annotation, e.g., speech and speech2, by
+   *     local name.
+   */
+  public Map<String, String> getAttributes() {
+    return this.attributes;
+  }
+
+
+  /**
+   * @return The parents.
+   */
+  public List<Reference> getParents() {
+    return this.parents;
+  }
+
+
+  /**
+   * @return The position in the parent or null.
+   */
+  public Integer getPosition() {
+    return this.position;
+  }
+
+
+  /**
+   * @param position
+   *          The position in the parent.
+   */
+  public void setPosition(final Integer position) {
+    this.position = position;
+  }
+
+
+  /**
+   * @return The children.
+   */
+  public List<Reference> getChildren() {
+    return this.children;
+  }
+
+
+  /**
+   * @return The atoms and bonds the element consists of.
+   */
+  public List<Reference> getComponent() {
+    return this.component;
+  }
+
+
+  /**
+   * @return The neighbours.
+   */
+  public List<Neighbour> getNeighbours() {
+    return this.neighbours;
+  }
+
+
+  /**
+   * A reference to an atom, bond or atom set.
+   */
+  public static final class Reference {
+
+    private final Kind kind;
+    private final String id;
+    private final String type;
+
+
+    /**
+     * @param kind
+     *          The kind of element.
+     * @param id
+     *          The identifier.
+     * @param type
+     *          The type, e.g., Carbon or single, or null.
+     */
+    public Reference(final Kind kind, final String id, final String type) {
+      this.kind = kind;
+      this.id = id;
+      this.type = type;
+    }
+
+
+    /**
+     * @return The kind of element.
+     */
+    public Kind getKind() {
+      return this.kind;
+    }
+
+
+    /**
+     * @return The identifier.
+     */
+    public String getId() {
+      return this.id;
+    }
+
+
+    /**
+     * @return The type or null.
+     */
+    public String getType() {
+      return this.type;
+    }
+
+  }
+
+
+  /**
+   * A neighbour with the bonds it is reached via.
+   */
+  public static final class Neighbour {
+
+    private final Reference target;
+    private final Map<String, String> attributes = new LinkedHashMap<>();
+    private final List<Via> vias = new ArrayList<>();
+
+
+    /**
+     * @param target
+     *          The neighbouring element.
+     */
+    public Neighbour(final Reference target) {
+      this.target = target;
+    }
+
+
+    /**
+     * @return The neighbouring element.
+     */
+    public Reference getTarget() {
+      return this.target;
+    }
+
+
+    /**
+     * @return The attributes, e.g., speech and location, by local name.
+     */
+    public Map<String, String> getAttributes() {
+      return this.attributes;
+    }
+
+
+    /**
+     * @return The connections to the neighbour.
+     */
+    public List<Via> getVias() {
+      return this.vias;
+    }
+
+  }
+
+
+  /**
+   * A connection to a neighbour.
+   */
+  public static final class Via {
+
+    private final String type;
+    private final Reference bond;
+    private final Integer position;
+
+
+    /**
+     * @param type
+     *          The type of connection, or null.
+     * @param bond
+     *          The connecting bond.
+     * @param position
+     *          The position of the connection or null.
+     */
+    public Via(final String type, final Reference bond,
+        final Integer position) {
+      this.type = type;
+      this.bond = bond;
+      this.position = position;
+    }
+
+
+    /**
+     * @return The type of connection or null.
+     */
+    public String getType() {
+      return this.type;
+    }
+
+
+    /**
+     * @return The connecting bond.
+     */
+    public Reference getBond() {
+      return this.bond;
+    }
+
+
+    /**
+     * @return The position of the connection or null.
+     */
+    public Integer getPosition() {
+      return this.position;
+    }
+
+  }
+
+}
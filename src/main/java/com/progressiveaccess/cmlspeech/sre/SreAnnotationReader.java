@@ -0,0 +1,388 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   SreAnnotationReader.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 18:52:09 2026
+ *
+ * @brief  Streaming reader for the annotations of enriched CML.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech.sre;
+
+import com.progressiveaccess.cmlspeech.sre.SreAnnotation.Kind;
+import com.progressiveaccess.cmlspeech.sre.SreAnnotation.Neighbour;
+import com.progressiveaccess.cmlspeech.sre.SreAnnotation.Reference;
+import com.progressiveaccess.cmlspeech.sre.SreAnnotation.Via;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Iterates over the annotations of an enriched CML file in document order.
+ *
+ * <p>The file is read with a pull parser and only the current annotation is
+ * held in memory, so converters to other formats run in a single pass
+ * without building a document tree. Elements the navigator does not use,
+ * such as the context of the annotation visitor, are skipped.
+ */
+public final class SreAnnotationReader
+    implements Iterator<SreAnnotation>, Closeable {
+
+  /** The namespace of the annotations. */
+  public static final String NAMESPACE = "http://www.chemaccess.org/sre-schema";
+
+  private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+
+  private final InputStream input;
+  private final XMLStreamReader reader;
+  private SreAnnotation next = null;
+
+
+  /**
+   * Constructs a reader over a stream of enriched CML.
+   *
+   * @param input
+   *          The byte stream.
+   *
+   * @throws IOException
+   *          If the stream cannot be parsed.
+   */
+  public SreAnnotationReader(final InputStream input) throws IOException {
+    this.input = input;
+    try {
+      this.reader = FACTORY.createXMLStreamReader(input);
+    } catch (final XMLStreamException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
+
+  /**
+   * Opens an enriched CML file.
+   *
+   * @param file
+   *          The file.
+   *
+   * @return The reader.
+   *
+   * @throws IOException
+   *          If the file cannot be opened.
+   */
+  public static SreAnnotationReader open(final Path file) throws IOException {
+    return new SreAnnotationReader(Files.newInputStream(file));
+  }
+
+
+  @Override
+  public boolean hasNext() {
+    if (this.next == null) {
+      try {
+        this.next = this.readAnnotation();
+      } catch (final XMLStreamException e) {
+        throw new UncheckedIOException(new IOException(e.getMessage(), e));
+      }
+    }
+    return this.next != null;
+  }
+
+
+  @Override
+  public SreAnnotation next() {
+    if (!this.hasNext()) {
+      throw new NoSuchElementException();
+    }
+    final SreAnnotation result = this.next;
+    this.next = null;
+    return result;
+  }
+
+
+  @Override
+  public void close() throws IOException {
+    try {
+      this.reader.close();
+    } catch (final XMLStreamException e) {
+      throw new IOException(e.getMessage(), e);
+    } finally {
+      this.input.close();
+    }
+  }
+
+
+  /**
+   * Reads the next annotation that starts with an annotated element.
+   *
+   * @return The annotation or null at the end of the document.
+   *
+   * @throws XMLStreamException
+   *          If the document is malformed.
+   */
+  private SreAnnotation readAnnotation() throws XMLStreamException {
+    while (this.reader.hasNext()) {
+      if (this.reader.next() != XMLStreamConstants.START_ELEMENT
+          || !this.isSre("annotation")) {
+        continue;
+      }
+      final SreAnnotation annotation = this.readContent();
+      if (annotation != null) {
+        return annotation;
+      }
+    }
+    return null;
+  }
+
+
+  /**
+   * Reads the content of an annotation element, leaving the reader at its
+   * end tag.
+   *
+   * @return The annotation or null if it does not start with an atom, bond
+   *     or atom set.
+   *
+   * @throws XMLStreamException
+   *          If the document is malformed.
+   */
+  private SreAnnotation readContent() throws XMLStreamException {
+    final Map<String, String> attributes = this.attributes();
+    if (!this.nextChild()) {
+      return null;
+    }
+    if (this.kind() == null) {
+      this.skip();
+      this.skip();
+      return null;
+    }
+    final SreAnnotation annotation = new SreAnnotation(this.readReference());
+    annotation.getAttributes().putAll(attributes);
+    while (this.nextChild()) {
+      switch (this.reader.getLocalName()) {
+        case "parents":
+          this.readReferences(annotation.getParents());
+          break;
+        case "children":
+          this.readReferences(annotation.getChildren());
+          break;
+        case "component":
+          this.readReferences(annotation.getComponent());
+          break;
+        case "position":
+          annotation.setPosition(this.readInteger());
+          break;
+        case "neighbours":
+          while (this.nextChild()) {
+            annotation.getNeighbours().add(this.readNeighbour());
+          }
+          break;
+        default:
+          this.skip();
+      }
+    }
+    return annotation;
+  }
+
+
+  /**
+   * Reads a neighbour element.
+   *
+   * @return The neighbour.
+   *
+   * @throws XMLStreamException
+   *          If the document is malformed.
+   */
+  private Neighbour readNeighbour() throws XMLStreamException {
+    final Map<String, String> attributes = this.attributes();
+    this.nextChild();
+    final Neighbour neighbour = new Neighbour(this.readReference());
+    neighbour.getAttributes().putAll(attributes);
+    while (this.nextChild()) {
+      if (!this.reader.getLocalName().equals("via")) {
+        this.skip();
+        continue;
+      }
+      final String type = this.attribute("type");
+      Reference bond = null;
+      Integer position = null;
+      while (this.nextChild()) {
+        if (this.reader.getLocalName().equals("position")) {
+          position = this.readInteger();
+        } else if (this.kind() != null) {
+          bond = this.readReference();
+        } else {
+          this.skip();
+        }
+      }
+      neighbour.getVias().add(new Via(type, bond, position));
+    }
+    return neighbour;
+  }
+
+
+  /**
+   * Reads the element references of a list element.
+   *
+   * @param references
+   *          The list to add to.
+   *
+   * @throws XMLStreamException
+   *          If the document is malformed.
+   */
+  private void readReferences(final List<Reference> references)
+      throws XMLStreamException {
+    while (this.nextChild()) {
+      if (this.kind() == null) {
+        this.skip();
+      } else {
+        references.add(this.readReference());
+      }
+    }
+  }
+
+
+  /**
+   * Reads an atom, bond or atom set element.
+   *
+   * @return The reference.
+   *
+   * @throws XMLStreamException
+   *          If the document is malformed.
+   */
+  private Reference readReference() throws XMLStreamException {
+    final Kind kind = this.kind();
+    final String type = this.attribute("type");
+    return new Reference(kind, this.reader.getElementText().trim(), type);
+  }
+
+
+  /**
+   * @return The integer content of the current element.
+   *
+   * @throws XMLStreamException
+   *          If the document is malformed.
+   */
+  private Integer readInteger() throws XMLStreamException {
+    return Integer.valueOf(this.reader.getElementText().trim());
+  }
+
+
+  /**
+   * Advances to the next child of the current element.
+   *
+   * @return True if the reader is at the start tag of a child, false if it
+   *     is at the end tag of the current element.
+   *
+   * @throws XMLStreamException
+   *          If the document is malformed.
+   */
+  private boolean nextChild() throws XMLStreamException {
+    while (true) {
+      final int event = this.reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        return true;
+      }
+      if (event == XMLStreamConstants.END_ELEMENT) {
+        return false;
+      }
+    }
+  }
+
+
+  /**
+   * Skips the rest of the current element.
+   *
+   * @throws XMLStreamException
+   *          If the document is malformed.
+   */
+  private void skip() throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      final int event = this.reader.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        depth--;
+      }
+    }
+  }
+
+
+  /**
+   * @param name
+   *          A local name.
+   *
+   * @return True if the current element is the annotation element of that
+   *     name.
+   */
+  private boolean isSre(final String name) {
+    return name.equals(this.reader.getLocalName())
+        && NAMESPACE.equals(this.reader.getNamespaceURI());
+  }
+
+
+  /**
+   * @return The kind of the current element or null if it is neither atom,
+   *     bond nor atom set.
+   */
+  private Kind kind() {
+    return Kind.fromTag(this.reader.getLocalName());
+  }
+
+
+  /**
+   * @param name
+   *          The local name of an annotation attribute.
+   *
+   * @return The value of the attribute on the current element or null.
+   */
+  private String attribute(final String name) {
+    return this.reader.getAttributeValue(NAMESPACE, name);
+  }
+
+
+  /**
+   * @return The annotation attributes of the current element by local name.
+   */
+  private Map<String, String> attributes() {
+    final Map<String, String> result = new LinkedHashMap<>();
+    for (int i = 0; i < this.reader.getAttributeCount(); i++) {
+      if (NAMESPACE.equals(this.reader.getAttributeNamespace(i))) {
+        result.put(this.reader.getAttributeLocalName(i),
+                   this.reader.getAttributeValue(i));
+      }
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,273 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   SreBinaryReader.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 19:31:18 2026
+ *
+ * @brief  Memory mapped reader of the binary annotation format.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech.sre;
+
+import com.progressiveaccess.cmlspeech.sre.SreAnnotation.Kind;
+import com.progressiveaccess.cmlspeech.sre.SreAnnotation.Neighbour;
+import com.progressiveaccess.cmlspeech.sre.SreAnnotation.Reference;
+import com.progressiveaccess.cmlspeech.sre.SreAnnotation.Via;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads annotations written by {@link SreBinaryWriter} from a memory mapped
+ * file.
+ *
+ * <p>Opening a file only maps it and reads the header, so reloading a large
+ * library of enriched molecules costs no parsing. Annotations are looked up
+ * by their navigator key through the hash table in constant expected time
+ * and only the record found is decoded. The reader is immutable and can be
+ * shared between threads.
+ */
+public final class SreBinaryReader {
+
+  private static final Kind[] KINDS = Kind.values();
+
+  private final ByteBuffer buffer;
+  private final int size;
+  private final int strings;
+  private final int slots;
+  private final int stringStart;
+  private final int dataStart;
+  private final int tableStart;
+  private final int indexStart;
+
+
+  /**
+   * Maps a binary annotation file.
+   *
+   * @param file
+   *          The file.
+   *
+   * @throws IOException
+   *          If the file cannot be mapped or is not in the binary format.
+   */
+  public SreBinaryReader(final Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(
+             file, StandardOpenOption.READ)) {
+      this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                channel.size());
+    }
+    if (this.buffer.capacity() < 4 * SreBinaryWriter.HEADER
+        || this.buffer.getInt(0) != SreBinaryWriter.MAGIC) {
+      throw new IOException("Not a binary annotation file: " + file);
+    }
+    this.size = this.buffer.getInt(4);
+    this.strings = this.buffer.getInt(8);
+    this.slots = this.buffer.getInt(12);
+    this.stringStart = this.buffer.getInt(16);
+    this.dataStart = this.stringStart + 4 * (this.strings + 1);
+    this.tableStart = this.buffer.getInt(20);
+    this.indexStart = this.buffer.getInt(24);
+  }
+
+
+  /**
+   * @return The number of annotations.
+   */
+  public int size() {
+    return this.size;
+  }
+
+
+  /**
+   * @param key
+   *          The navigator key of an annotation: the identifier of a bond or
+   *     atom set, or that of an atom followed by its parent's.
+   *
+   * @return The annotation or null if there is none.
+   */
+  public SreAnnotation get(final String key) {
+    final int index = this.indexOf(key);
+    return index < 0 ? null : this.get(index);
+  }
+
+
+  /**
+   * @param key
+   *          The navigator key of an annotation.
+   *
+   * @return The number of the annotation or -1 if there is none.
+   */
+  public int indexOf(final String key) {
+    int slot = SreBinaryWriter.slot(key, this.slots);
+    while (true) {
+      final int entry = this.buffer.getInt(this.tableStart + 8 * slot);
+      if (entry == 0) {
+        return -1;
+      }
+      if (key.equals(this.string(
+              this.buffer.getInt(this.tableStart + 8 * slot + 4)))) {
+        return entry - 1;
+      }
+      slot = (slot + 1) & (this.slots - 1);
+    }
+  }
+
+
+  /**
+   * Decodes an annotation.
+   *
+   * @param index
+   *          The number of the annotation, in document order.
+   *
+   * @return The annotation.
+   */
+  public SreAnnotation get(final int index) {
+    final Cursor cursor = new Cursor(
+        this.buffer.getInt(this.indexStart + 4 * index));
+    final SreAnnotation annotation = new SreAnnotation(cursor.reference());
+    cursor.attributes(annotation.getAttributes());
+    annotation.setPosition(cursor.position());
+    cursor.references(annotation.getParents());
+    cursor.references(annotation.getChildren());
+    cursor.references(annotation.getComponent());
+    for (int i = cursor.next(); i > 0; i--) {
+      final Neighbour neighbour = new Neighbour(cursor.reference());
+      cursor.attributes(neighbour.getAttributes());
+      for (int j = cursor.next(); j > 0; j--) {
+        final String type = cursor.string();
+        final Reference bond = cursor.reference();
+        neighbour.getVias().add(new Via(type, bond, cursor.position()));
+      }
+      annotation.getNeighbours().add(neighbour);
+    }
+    return annotation;
+  }
+
+
+  /**
+   * @param index
+   *          The number of a string or -1.
+   *
+   * @return The string or null.
+   */
+  private String string(final int index) {
+    if (index < 0) {
+      return null;
+    }
+    final int start = this.buffer.getInt(this.stringStart + 4 * index);
+    final int end = this.buffer.getInt(this.stringStart + 4 * index + 4);
+    final byte[] bytes = new byte[end - start];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = this.buffer.get(this.dataStart + start + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+
+  /**
+   * Reads the integers of a record in sequence.
+   */
+  private final class Cursor {
+
+    private int offset;
+
+
+    /**
+     * @param offset
+     *          The offset of the record.
+     */
+    private Cursor(final int offset) {
+      this.offset = offset;
+    }
+
+
+    /**
+     * @return The next integer.
+     */
+    private int next() {
+      final int result = SreBinaryReader.this.buffer.getInt(this.offset);
+      this.offset += 4;
+      return result;
+    }
+
+
+    /**
+     * @return The next string.
+     */
+    private String string() {
+      return SreBinaryReader.this.string(this.next());
+    }
+
+
+    /**
+     * @return The next position or null.
+     */
+    private Integer position() {
+      final int position = this.next();
+      return position == SreBinaryWriter.NO_POSITION ? null : position;
+    }
+
+
+    /**
+     * @return The next element or null.
+     */
+    private Reference reference() {
+      final int kind = this.next();
+      if (kind < 0) {
+        return null;
+      }
+      final String id = this.string();
+      return new Reference(KINDS[kind], id, this.string());
+    }
+
+
+    /**
+     * @param references
+     *          The list to add the next counted list of elements to.
+     */
+    private void references(final List<Reference> references) {
+      for (int i = this.next(); i > 0; i--) {
+        references.add(this.reference());
+      }
+    }
+
+
+    /**
+     * @param attributes
+     *          The map to add the next counted attributes to.
+     */
+    private void attributes(final Map<String, String> attributes) {
+      for (int i = this.next(); i > 0; i--) {
+        final String name = this.string();
+        attributes.put(name, this.string());
+      }
+    }
+
+  }
+
+}
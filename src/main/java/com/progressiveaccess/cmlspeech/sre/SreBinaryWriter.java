@@ -0,0 +1,308 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   SreBinaryWriter.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 19:10:44 2026
+ *
+ * @brief  Writes annotations in the compact binary format.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech.sre;
+
+import com.progressiveaccess.cmlspeech.sre.SreAnnotation.Neighbour;
+import com.progressiveaccess.cmlspeech.sre.SreAnnotation.Reference;
+import com.progressiveaccess.cmlspeech.sre.SreAnnotation.Via;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes the annotations of a molecule in a binary form that
+ * {@link SreBinaryReader} can memory map.
+ *
+ * <p>All numbers are big endian 32 bit integers. The file starts with a
+ * header of eight integers: the magic number, the number of annotations,
+ * the number of strings, the number of hash slots, and the offsets of the
+ * string index, the hash table, the record index and the records. Strings,
+ * i.e., identifiers, types and speech, are stored once in a table of UTF-8
+ * data indexed by offsets and referred to by number, -1 being null. The
+ * hash table is indexed by the hash of the navigator key of an annotation,
+ * see {@link SreAnnotation#getKey()}, and holds pairs of the annotation
+ * number plus one and the key string; it uses linear probing and is at
+ * most half full. The number of slots is the least power of two, and at
+ * least 2, that is not below twice the number of annotations. The hash of
+ * a key is that of {@link String#hashCode()}: {@code h = 31 * h + c} over
+ * its UTF-16 code units {@code c}, starting from {@code h = 0}, in 32 bit
+ * two's complement arithmetic. The first slot tried is
+ * {@code (h ^ (h >>> 16)) & (slots - 1)}, and probing continues with the
+ * next slot modulo the number of slots, so that readers in other languages
+ * can look up keys without this class.
+ * Elements are written as kind, identifier and type, or as
+ * -1 if missing. A record holds the annotated element, the attributes as
+ * name and value pairs, the position, the parents, children and component
+ * as counted lists of elements, and the neighbours with their attributes
+ * and vias.
+ */
+public final class SreBinaryWriter {
+
+  /** The magic number, SRE1 in ASCII. */
+  public static final int MAGIC = 0x53524531;
+
+  /** Marks a missing position. */
+  public static final int NO_POSITION = Integer.MIN_VALUE;
+
+  /** The number of integers in the header. */
+  public static final int HEADER = 8;
+
+  private final List<String> strings = new ArrayList<>();
+  private final Map<String, Integer> stringIndex = new HashMap<>();
+  private final List<Integer> keys = new ArrayList<>();
+  private final ByteArrayOutputStream recordBytes =
+      new ByteArrayOutputStream();
+  private final DataOutputStream records =
+      new DataOutputStream(this.recordBytes);
+  private final List<Integer> offsets = new ArrayList<>();
+
+
+  /**
+   * Adds an annotation.
+   *
+   * @param annotation
+   *          The annotation.
+   *
+   * @throws IOException
+   *          Not thrown, as records are buffered in memory.
+   */
+  public void add(final SreAnnotation annotation) throws IOException {
+    this.offsets.add(this.records.size());
+    this.keys.add(this.string(annotation.getKey()));
+    this.reference(annotation.getElement());
+    this.attributes(annotation.getAttributes());
+    this.records.writeInt(annotation.getPosition() == null
+                          ? NO_POSITION : annotation.getPosition());
+    this.references(annotation.getParents());
+    this.references(annotation.getChildren());
+    this.references(annotation.getComponent());
+    this.records.writeInt(annotation.getNeighbours().size());
+    for (final Neighbour neighbour : annotation.getNeighbours()) {
+      this.reference(neighbour.getTarget());
+      this.attributes(neighbour.getAttributes());
+      this.records.writeInt(neighbour.getVias().size());
+      for (final Via via : neighbour.getVias()) {
+        this.records.writeInt(this.string(via.getType()));
+        this.reference(via.getBond());
+        this.records.writeInt(via.getPosition() == null
+                              ? NO_POSITION : via.getPosition());
+      }
+    }
+  }
+
+
+  /**
+   * Writes the encoding of all annotations added.
+   *
+   * @param output
+   *          The stream to write to.
+   *
+   * @throws IOException
+   *          If the stream cannot be written.
+   */
+  public void write(final OutputStream output) throws IOException {
+    int slots = 2;
+    while (slots < 2 * this.keys.size()) {
+      slots *= 2;
+    }
+    final int[] table = new int[2 * slots];
+    for (int i = 0; i < this.keys.size(); i++) {
+      int slot = slot(this.strings.get(this.keys.get(i)), slots);
+      while (table[2 * slot] != 0) {
+        slot = (slot + 1) & (slots - 1);
+      }
+      table[2 * slot] = i + 1;
+      table[2 * slot + 1] = this.keys.get(i);
+    }
+    final List<byte[]> data = new ArrayList<>(this.strings.size());
+    for (final String string : this.strings) {
+      data.add(string.getBytes(StandardCharsets.UTF_8));
+    }
+    final int stringStart = 4 * HEADER;
+    int dataSize = 0;
+    for (final byte[] bytes : data) {
+      dataSize += bytes.length;
+    }
+    final int tableStart = stringStart + 4 * (data.size() + 1) + dataSize;
+    final int indexStart = tableStart + 8 * slots;
+    final int recordStart = indexStart + 4 * this.offsets.size();
+    final DataOutputStream out = new DataOutputStream(output);
+    for (final int value : new int[] {MAGIC, this.keys.size(), data.size(),
+                                      slots, stringStart, tableStart,
+                                      indexStart, recordStart}) {
+      out.writeInt(value);
+    }
+    int offset = 0;
+    out.writeInt(offset);
+    for (final byte[] bytes : data) {
+      offset += bytes.length;
+      out.writeInt(offset);
+    }
+    for (final byte[] bytes : data) {
+      out.write(bytes);
+    }
+    for (final int entry : table) {
+      out.writeInt(entry);
+    }
+    for (final int record : this.offsets) {
+      out.writeInt(recordStart + record);
+    }
+    this.recordBytes.writeTo(out);
+    out.flush();
+  }
+
+
+  /**
+   * Converts the annotations of an enriched CML file.
+   *
+   * @param cml
+   *          The enriched CML file.
+   * @param binary
+   *          The file to write the binary encoding to.
+   *
+   * @throws IOException
+   *          If a file cannot be read or written.
+   */
+  public static void convert(final Path cml, final Path binary)
+      throws IOException {
+    final SreBinaryWriter writer = new SreBinaryWriter();
+    try (SreAnnotationReader reader = SreAnnotationReader.open(cml)) {
+      while (reader.hasNext()) {
+        writer.add(reader.next());
+      }
+    }
+    try (OutputStream output = new BufferedOutputStream(
+             Files.newOutputStream(binary))) {
+      writer.write(output);
+    }
+  }
+
+
+  /**
+   * @param key
+   *          The key of an annotation.
+   * @param slots
+   *          The number of hash slots, a power of two.
+   *
+   * @return The first slot to try for the key, as given in the class
+   *     comment.
+   */
+  static int slot(final String key, final int slots) {
+    final int hash = key.hashCode();
+    return (hash ^ (hash >>> 16)) & (slots - 1);
+  }
+
+
+  /**
+   * @param string
+   *          A string or null.
+   *
+   * @return The number of the string in the table, or -1 for null.
+   */
+  private int string(final String string) {
+    if (string == null) {
+      return -1;
+    }
+    Integer index = this.stringIndex.get(string);
+    if (index == null) {
+      index = this.strings.size();
+      this.strings.add(string);
+      this.stringIndex.put(string, index);
+    }
+    return index;
+  }
+
+
+  /**
+   * Writes a reference as kind, identifier and type.
+   *
+   * @param reference
+   *          The reference or null.
+   *
+   * @throws IOException
+   *          Not thrown.
+   */
+  private void reference(final Reference reference) throws IOException {
+    if (reference == null) {
+      this.records.writeInt(-1);
+      return;
+    }
+    this.records.writeInt(reference.getKind().ordinal());
+    this.records.writeInt(this.string(reference.getId()));
+    this.records.writeInt(this.string(reference.getType()));
+  }
+
+
+  /**
+   * Writes a list of references preceded by its length.
+   *
+   * @param references
+   *          The references.
+   *
+   * @throws IOException
+   *          Not thrown.
+   */
+  private void references(final List<Reference> references)
+      throws IOException {
+    this.records.writeInt(references.size());
+    for (final Reference reference : references) {
+      this.reference(reference);
+    }
+  }
+
+
+  /**
+   * Writes attributes preceded by their number.
+   *
+   * @param attributes
+   *          The attributes.
+   *
+   * @throws IOException
+   *          Not thrown.
+   */
+  private void attributes(final Map<String, String> attributes)
+      throws IOException {
+    this.records.writeInt(attributes.size());
+    for (final Map.Entry<String, String> attribute : attributes.entrySet()) {
+      this.records.writeInt(this.string(attribute.getKey()));
+      this.records.writeInt(this.string(attribute.getValue()));
+    }
+  }
+
+}
@@ -0,0 +1,324 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   SreJsonWriter.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 20:37:51 2026
+ *
+ * @brief  Streams annotations as JSON for the browser navigator.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech.sre;
+
+import com.progressiveaccess.cmlspeech.sre.SreAnnotation.Neighbour;
+import com.progressiveaccess.cmlspeech.sre.SreAnnotation.Reference;
+import com.progressiveaccess.cmlspeech.sre.SreAnnotation.Via;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the annotations of a molecule as JSON, so that the navigator can
+ * load them without parsing XML.
+ *
+ * <p>The layout is flat and index based: an object with the locale, the
+ * array of annotations and the array of elements. Elements are objects of
+ * kind, id and type, and are referred to by their index everywhere else.
+ * An annotation holds its element, key, position and the index arrays of
+ * parents, children and component, its speech by locale, and its
+ * neighbours. A neighbour holds its element, speech, further attributes
+ * such as the location, and its vias with type, bond index and position.
+ *
+ * <p>Annotations are written as they are added, one per line. Only the
+ * element table is kept in memory and written last, so the output is
+ * generated in the same pass as the annotations are read.
+ */
+public final class SreJsonWriter implements Closeable {
+
+  private final Writer output;
+  private final String locale;
+  private final List<Reference> elements = new ArrayList<>();
+  private final Map<String, Integer> elementIndex = new HashMap<>();
+  private boolean first = true;
+
+
+  /**
+   * Starts the JSON document.
+   *
+   * @param output
+   *          The writer to stream to.
+   * @param locale
+   *          The locale of the speech, e.g., english or ja.
+   *
+   * @throws IOException
+   *          If the writer fails.
+   */
+  public SreJsonWriter(final Writer output, final String locale)
+      throws IOException {
+    this.output = output;
+    this.locale = locale;
+    this.output.write("{\"locale\":");
+    this.string(locale);
+    this.output.write(",\"annotations\":[");
+  }
+
+
+  /**
+   * Writes an annotation.
+   *
+   * @param annotation
+   *          The annotation.
+   *
+   * @throws IOException
+   *          If the writer fails.
+   */
+  public void add(final SreAnnotation annotation) throws IOException {
+    this.output.write(this.first ? "\n{" : ",\n{");
+    this.first = false;
+    this.output.write("\"element\":" + this.element(annotation.getElement()));
+    this.output.write(",\"key\":");
+    this.string(annotation.getKey());
+    this.attributes(annotation.getAttributes());
+    this.output.write(",\"position\":" + annotation.getPosition());
+    this.output.write(",\"parents\":");
+    this.elements(annotation.getParents());
+    this.output.write(",\"children\":");
+    this.elements(annotation.getChildren());
+    this.output.write(",\"component\":");
+    this.elements(annotation.getComponent());
+    this.output.write(",\"neighbours\":[");
+    String separator = "";
+    for (final Neighbour neighbour : annotation.getNeighbours()) {
+      this.output.write(separator + "{\"element\":"
+                        + this.element(neighbour.getTarget()));
+      this.attributes(neighbour.getAttributes());
+      this.output.write(",\"via\":[");
+      String viaSeparator = "";
+      for (final Via via : neighbour.getVias()) {
+        this.output.write(viaSeparator + "{\"type\":");
+        this.string(via.getType());
+        this.output.write(",\"bond\":" + this.element(via.getBond())
+                          + ",\"position\":" + via.getPosition() + "}");
+        viaSeparator = ",";
+      }
+      this.output.write("]}");
+      separator = ",";
+    }
+    this.output.write("]}");
+  }
+
+
+  /**
+   * Writes the element table and ends the document. The underlying writer
+   * is closed as well.
+   *
+   * @throws IOException
+   *          If the writer fails.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      this.output.write("\n],\"elements\":[");
+      String separator = "";
+      for (final Reference element : this.elements) {
+        this.output.write(separator + "\n{\"kind\":");
+        this.string(element.getKind().getTag());
+        this.output.write(",\"id\":");
+        this.string(element.getId());
+        this.output.write(",\"type\":");
+        this.string(element.getType());
+        this.output.write("}");
+        separator = ",";
+      }
+      this.output.write("\n]}\n");
+    } finally {
+      this.output.close();
+    }
+  }
+
+
+  /**
+   * Converts the annotations of an enriched CML file.
+   *
+   * @param cml
+   *          The enriched CML file.
+   * @param json
+   *          The file to write the JSON to.
+   * @param locale
+   *          The locale the molecule was enriched in.
+   *
+   * @throws IOException
+   *          If a file cannot be read or written.
+   */
+  public static void convert(final Path cml, final Path json,
+      final String locale) throws IOException {
+    try (SreAnnotationReader reader = SreAnnotationReader.open(cml);
+         BufferedWriter output = Files.newBufferedWriter(
+             json, StandardCharsets.UTF_8);
+         SreJsonWriter writer = new SreJsonWriter(output, locale)) {
+      while (reader.hasNext()) {
+        writer.add(reader.next());
+      }
+    }
+  }
+
+
+  /**
+   * Looks up the index of an element, adding it to the table if necessary.
+   * The type of an element is only given in some places, so the first one
+   * seen is kept.
+   *
+   * @param reference
+   *          The element or null.
+   *
+   * @return The index or null.
+   */
+  private Integer element(final Reference reference) {
+    if (reference == null) {
+      return null;
+    }
+    final String key = reference.getKind().getTag() + ":" + reference.getId();
+    final Integer index = this.elementIndex.get(key);
+    if (index == null) {
+      this.elementIndex.put(key, this.elements.size());
+      this.elements.add(reference);
+      return this.elements.size() - 1;
+    }
+    if (this.elements.get(index).getType() == null
+        && reference.getType() != null) {
+      this.elements.set(index, reference);
+    }
+    return index;
+  }
+
+
+  /**
+   * Writes an array of element indices.
+   *
+   * @param references
+   *          The elements.
+   *
+   * @throws IOException
+   *          If the writer fails.
+   */
+  private void elements(final List<Reference> references)
+      throws IOException {
+    this.output.write("[");
+    String separator = "";
+    for (final Reference reference : references) {
+      this.output.write(separator + this.element(reference));
+      separator = ",";
+    }
+    this.output.write("]");
+  }
+
+
+  /**
+   * Writes the attributes of an annotation or neighbour. Speech attributes
+   * are grouped by the locale, all others are written as they are.
+   *
+   * @param attributes
+   *          The attributes by local name.
+   *
+   * @throws IOException
+   *          If the writer fails.
+   */
+  private void attributes(final Map<String, String> attributes)
+      throws IOException {
+    String separator = "";
+    this.output.write(",\"speech\":{");
+    this.string(this.locale);
+    this.output.write(":{");
+    for (final Map.Entry<String, String> attribute : attributes.entrySet()) {
+      if (attribute.getKey().startsWith("speech")) {
+        this.output.write(separator);
+        this.string(attribute.getKey());
+        this.output.write(":");
+        this.string(attribute.getValue());
+        separator = ",";
+      }
+    }
+    this.output.write("}}");
+    for (final Map.Entry<String, String> attribute : attributes.entrySet()) {
+      if (!attribute.getKey().startsWith("speech")) {
+        this.output.write(",");
+        this.string(attribute.getKey());
+        this.output.write(":");
+        this.string(attribute.getValue());
+      }
+    }
+  }
+
+
+  /**
+   * Writes a JSON string literal.
+   *
+   * @param string
+   *          The string or null.
+   *
+   * @throws IOException
+   *          If the writer fails.
+   */
+  private void string(final String string) throws IOException {
+    if (string == null) {
+      this.output.write("null");
+      return;
+    }
+    this.output.write('"');
+    for (int i = 0; i < string.length(); i++) {
+      final char c = string.charAt(i);
+      switch (c) {
+        case '"':
+          this.output.write("\\\"");
+          break;
+        case '\\':
+          this.output.write("\\\\");
+          break;
+        case '\n':
+          this.output.write("\\n");
+          break;
+        case '\r':
+          this.output.write("\\r");
+          break;
+        case '\t':
+          this.output.write("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            this.output.write(String.format("\\u%04x", (int) c));
+          } else {
+            this.output.write(c);
+          }
+      }
+    }
+    this.output.write('"');
+  }
+
+}
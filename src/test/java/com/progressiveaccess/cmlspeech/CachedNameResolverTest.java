@@ -0,0 +1,105 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   CachedNameResolverTest.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 14:29:36 2026
+ *
+ * @brief  Tests for the persistent name cache.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.progressiveaccess.cmlspeech.base.CachedNameResolver;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Caching, persistence, bulk loading and offline mode of name resolution.
+ */
+public class CachedNameResolverTest {
+
+  private static final String ASPIRIN = "BSYNRYMUTXBXSQ-UHFFFAOYSA-N";
+  private static final String BENZENE = "UHOVQNZJYSORNB-UHFFFAOYSA-N";
+  private static final String UNKNOWN = "AAAAAAAAAAAAAA-UHFFFAOYSA-N";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+
+  /**
+   * @return A stub knowing the name of aspirin.
+   */
+  private StubNameResolver stub() {
+    final Map<String, String> names = new HashMap<>();
+    names.put(ASPIRIN, "2-acetyloxybenzoic acid");
+    return new StubNameResolver(names);
+  }
+
+
+  @Test
+  public void cacheTest() throws Exception {
+    System.out.println("Testing name cache...");
+    final Path file = this.folder.getRoot().toPath().resolve("names.tsv");
+    final StubNameResolver stub = this.stub();
+    final CachedNameResolver resolver = new CachedNameResolver(file, stub);
+    assertEquals("2-acetyloxybenzoic acid", resolver.resolve(ASPIRIN, null));
+    assertEquals("2-acetyloxybenzoic acid", resolver.resolve(ASPIRIN, null));
+    assertNull(resolver.resolve(UNKNOWN, null));
+    assertNull(resolver.resolve(UNKNOWN, null));
+    assertEquals(2, stub.getLookups().intValue());
+    final CachedNameResolver offline = new CachedNameResolver(file, null);
+    assertEquals("2-acetyloxybenzoic acid", offline.resolve(ASPIRIN, null));
+    assertNull(offline.resolve(UNKNOWN, null));
+  }
+
+
+  @Test
+  public void loadTest() throws Exception {
+    System.out.println("Testing bulk loading of names...");
+    final Path file = this.folder.getRoot().toPath().resolve("names.tsv");
+    final Path table = this.folder.newFile("table.tsv").toPath();
+    Files.write(table, Arrays.asList(BENZENE + "\tbenzene", "malformed",
+                                     ASPIRIN + "\taspirin"),
+                StandardCharsets.UTF_8);
+    final StubNameResolver stub = this.stub();
+    final CachedNameResolver resolver = new CachedNameResolver(file, stub);
+    assertEquals("2-acetyloxybenzoic acid", resolver.resolve(ASPIRIN, null));
+    assertEquals(1, resolver.load(table).intValue());
+    assertEquals("benzene", resolver.resolve(BENZENE, null));
+    assertEquals("2-acetyloxybenzoic acid", resolver.resolve(ASPIRIN, null));
+    assertEquals(1, stub.getLookups().intValue());
+    assertEquals(2, new CachedNameResolver(file, null).size().intValue());
+  }
+
+}
@@ -0,0 +1,92 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   ChainBenchmark.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 17:31:47 2026
+ *
+ * @brief  JMH benchmark of the aliphatic chain analysis.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech;
+
+import com.progressiveaccess.cmlspeech.analysis.ChainAnalysis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the chain analysis on alkanes and comb polymers growing to
+ * thousands of carbon atoms. Combs carry a side chain of four carbons on
+ * every second backbone atom.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+public class ChainBenchmark {
+
+  @Param({"10", "100", "1000", "5000"})
+  public int size;
+
+  @Param({"chain", "comb"})
+  public String shape;
+
+  private IAtomContainer molecule;
+
+
+  /**
+   * Generates a molecule with a backbone of size carbon atoms.
+   */
+  @Setup(Level.Trial)
+  public void generate() {
+    this.molecule = this.shape.equals("chain")
+        ? SyntheticMolecules.chain(this.size)
+        : SyntheticMolecules.comb(this.size, 4);
+  }
+
+
+  /**
+   * Benchmarks the computation of ring atoms, skeleton and chains.
+   *
+   * @return The analysis.
+   */
+  @Benchmark
+  public ChainAnalysis analyse() {
+    return new ChainAnalysis(this.molecule);
+  }
+
+}
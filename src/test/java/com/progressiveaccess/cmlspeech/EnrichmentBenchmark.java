@@ -0,0 +1,338 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   EnrichmentBenchmark.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 10:41:05 2026
+ *
+ * @brief  JMH benchmarks for the stages of enrichment.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech;
+
+import com.progressiveaccess.cmlspeech.analysis.FunctionalGroupRegistry;
+import com.progressiveaccess.cmlspeech.analysis.RichStructureHelper;
+import com.progressiveaccess.cmlspeech.base.App;
+import com.progressiveaccess.cmlspeech.base.Cli;
+import com.progressiveaccess.cmlspeech.base.CmlEnricher;
+import com.progressiveaccess.cmlspeech.structure.RichAtomSet;
+import com.progressiveaccess.cmlspeech.structure.RichRing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.MDLV2000Reader;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+
+import java.io.FileInputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the stages of enrichment on the test molecules.
+ *
+ * <p>Loading, analysis and functional group matching are measured directly.
+ * Visitors and serialisation are only reachable through {@link App}, so each
+ * visitor is measured as a full pipeline with the options of its functional
+ * test; the cost of a visitor is the difference to the {@code plain}
+ * pipeline, which loads, analyses and serialises only. Run with the
+ * {@code benchmark} profile, which adds the GC profiler to report allocation
+ * rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class EnrichmentBenchmark {
+
+  private static String testSources = "src/main/resources/test_files/molecule";
+
+  private static final Map<String, String[]> PIPELINES = new HashMap<>();
+
+  static {
+    PIPELINES.put("plain", new String[] {"-ao", "-nn"});
+    PIPELINES.put("structure", new String[] {"-ao", "-t", "-nn", "-nh"});
+    PIPELINES.put("annotation", new String[] {"-ao", "-a", "-nn"});
+    PIPELINES.put("simple", new String[]
+        {"-ao", "-t", "-r", "-i", "english", "-nn", "-nh", "-ia"});
+    PIPELINES.put("expert", new String[]
+        {"-ao", "-t", "-r0", "-i", "english", "-nn", "-nh", "-ia"});
+    PIPELINES.put("ja", new String[]
+        {"-ao", "-t", "-r", "-r0", "-i", "ja", "-nn", "-ia"});
+  }
+
+
+  /**
+   * @param name
+   *          The name of the molecule.
+   *
+   * @return The file the molecule is loaded from.
+   */
+  private static String moleculeFile(final String name) {
+    return Paths.get(testSources, name + ".mol").toString();
+  }
+
+
+  /**
+   * State selecting the molecule to work on.
+   */
+  @State(Scope.Thread)
+  public static class Molecule {
+
+    @Param({"aspirin", "book1-004-05", "book1-006-03", "book1-012-00",
+            "US06358966-20020319-C00001", "ovalene"})
+    public String name;
+
+
+    /**
+     * Initialises a dummy Cli.
+     *
+     * @throws Exception
+     *          Possible exceptions from the Cli.
+     */
+    @Setup(Level.Trial)
+    public void initCli() throws Exception {
+      final String[] dummy = {"-nn"};
+      Cli.init(dummy);
+    }
+
+  }
+
+
+  /**
+   * State with a freshly loaded molecule for every invocation.
+   */
+  @State(Scope.Thread)
+  public static class Loaded extends Molecule {
+
+    public CmlEnricher enricher;
+
+
+    /**
+     * Loads the molecule.
+     */
+    @Setup(Level.Invocation)
+    public void load() {
+      this.enricher = new CmlEnricher(moleculeFile(this.name));
+      this.enricher.loadMolecule();
+    }
+
+  }
+
+
+  /**
+   * State with a freshly analysed molecule for every invocation.
+   */
+  @State(Scope.Thread)
+  public static class Analysed extends Loaded {
+
+    /**
+     * Analyses the molecule.
+     */
+    @Setup(Level.Invocation)
+    public void analyse() {
+      this.enricher.analyseMolecule();
+    }
+
+  }
+
+
+  /**
+   * State with the plain CDK molecule.
+   */
+  @State(Scope.Thread)
+  public static class Parsed extends Molecule {
+
+    public IAtomContainer container;
+
+
+    /**
+     * Reads the molecule and compiles the functional group patterns.
+     *
+     * @throws Exception
+     *          If the molecule cannot be read.
+     */
+    @Setup(Level.Trial)
+    public void parse() throws Exception {
+      try (MDLV2000Reader reader = new MDLV2000Reader(
+               new FileInputStream(moleculeFile(this.name)))) {
+        this.container = reader.read(SilentChemObjectBuilder.getInstance()
+                                     .newInstance(IAtomContainer.class));
+      }
+      FunctionalGroupRegistry.getInstance();
+    }
+
+  }
+
+
+  /**
+   * State selecting a full pipeline.
+   */
+  @State(Scope.Thread)
+  public static class Pipeline {
+
+    @Param({"aspirin", "book1-004-05", "book1-006-03", "book1-012-00",
+            "US06358966-20020319-C00001", "ovalene"})
+    public String name;
+
+    @Param({"plain", "structure", "annotation", "simple", "expert", "ja"})
+    public String pipeline;
+
+    public String[] args;
+
+
+    /**
+     * Assembles the arguments for the application.
+     */
+    @Setup(Level.Trial)
+    public void arguments() {
+      final String[] options = PIPELINES.get(this.pipeline);
+      this.args = Arrays.copyOf(options, options.length + 1);
+      this.args[options.length] = moleculeFile(this.name);
+    }
+
+
+    /**
+     * Removes the enriched file.
+     *
+     * @throws Exception
+     *          If the file cannot be removed.
+     */
+    @TearDown(Level.Trial)
+    public void cleanUp() throws Exception {
+      Files.deleteIfExists(Paths.get(this.name + "-enr.cml"));
+    }
+
+  }
+
+
+  /**
+   * Benchmarks loading a molecule from file.
+   *
+   * @param molecule
+   *          The molecule state.
+   *
+   * @return The enricher with the loaded molecule.
+   */
+  @Benchmark
+  public CmlEnricher loadMolecule(final Molecule molecule) {
+    final CmlEnricher enricher =
+        new CmlEnricher(moleculeFile(molecule.name));
+    enricher.loadMolecule();
+    return enricher;
+  }
+
+
+  /**
+   * Benchmarks the structural analysis of a loaded molecule.
+   *
+   * @param loaded
+   *          The loaded molecule state.
+   *
+   * @return The enricher with the analysed molecule.
+   */
+  @Benchmark
+  public CmlEnricher analyseMolecule(final Loaded loaded) {
+    loaded.enricher.analyseMolecule();
+    return loaded.enricher;
+  }
+
+
+  /**
+   * Benchmarks rim and sub-system computation of the first ring system.
+   *
+   * @param analysed
+   *          The analysed molecule state.
+   * @param hole
+   *          Sink for the results.
+   */
+  @Benchmark
+  public void ringSystem(final Analysed analysed, final Blackhole hole) {
+    final RichAtomSet atomSet = RichStructureHelper.getRichAtomSet("as1");
+    if (atomSet instanceof RichRing) {
+      hole.consume(((RichRing) atomSet).getRim());
+      hole.consume(((RichRing) atomSet).getSubSystems());
+    }
+  }
+
+
+  /**
+   * Benchmarks functional group matching with the precompiled patterns.
+   *
+   * @param parsed
+   *          The parsed molecule state.
+   *
+   * @return The matching groups.
+   */
+  @Benchmark
+  public Map<String, int[][]> functionalGroups(final Parsed parsed) {
+    return FunctionalGroupRegistry.getInstance().match(parsed.container);
+  }
+
+
+  /**
+   * Benchmarks functional group matching on the common fork-join pool.
+   *
+   * @param parsed
+   *          The parsed molecule state.
+   *
+   * @return The matching groups.
+   */
+  @Benchmark
+  public Map<String, int[][]> functionalGroupsParallel(final Parsed parsed) {
+    return FunctionalGroupRegistry.getInstance().match(
+        parsed.container, ForkJoinPool.commonPool());
+  }
+
+
+  /**
+   * Benchmarks a full pipeline including the visitors and serialisation.
+   *
+   * @param pipeline
+   *          The pipeline state.
+   *
+   * @throws Exception
+   *          If enrichment fails.
+   */
+  @Benchmark
+  public void pipeline(final Pipeline pipeline) throws Exception {
+    App.main(pipeline.args);
+  }
+
+}
@@ -0,0 +1,146 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   FunctionalGroupRegistryTest.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 11:58:02 2026
+ *
+ * @brief  Tests for the functional group registry and its prefilter.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.progressiveaccess.cmlspeech.analysis.FunctionalGroupRegistry;
+import com.progressiveaccess.cmlspeech.analysis.SmartsPrerequisite;
+
+import org.junit.Test;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.MDLV2000Reader;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+
+import java.io.FileInputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Tests for the functional group registry.
+ */
+public class FunctionalGroupRegistryTest {
+
+  private static String testSources = "src/main/resources/test_files/molecule";
+
+
+  /**
+   * Compares the element prerequisites of a pattern with the expected ones.
+   *
+   * @param smarts
+   *          The SMARTS pattern.
+   * @param expected
+   *          Alternating element symbols and counts.
+   */
+  private void compareElements(final String smarts, final Object... expected) {
+    final Map<String, Integer> elements = new HashMap<>();
+    for (int i = 0; i < expected.length; i += 2) {
+      elements.put((String) expected[i], (Integer) expected[i + 1]);
+    }
+    assertEquals(smarts, elements,
+                 new SmartsPrerequisite(smarts).getElements());
+  }
+
+
+  @Test
+  public void prerequisiteTest() {
+    System.out.println("Testing SMARTS prerequisites...");
+    this.compareElements("[CX3](=O)[OX2H1]", "C", 1, "O", 2);
+    this.compareElements("[ClX1][CX4]", "Cl", 1, "C", 1);
+    this.compareElements("[OX2H][CX4;!$(C([OX2H])[O,S,#7,#15])]",
+                         "O", 1, "C", 1);
+    this.compareElements("[CX3](=[OX1])[F,Cl,Br,I]", "C", 1, "O", 1);
+    this.compareElements("[#6]~[#7,#8,#16]", "C", 1);
+    this.compareElements("[!#6;!#1]", new Object[0]);
+    this.compareElements("c1ccccc1", "C", 6);
+    this.compareElements("[nH]", "N", 1);
+    assertTrue(new SmartsPrerequisite("c1ccccc1").requiresRing());
+    assertFalse(new SmartsPrerequisite("[CX4]").requiresRing());
+    assertTrue(new SmartsPrerequisite("[CX2]#[CX2]").requiresTripleBond());
+    assertTrue(new SmartsPrerequisite("O=C-[NH]").requiresDoubleBond());
+    assertFalse(new SmartsPrerequisite("[#6]=,:[#6]").requiresDoubleBond());
+  }
+
+
+  @Test
+  public void registryTest() {
+    System.out.println("Testing functional group registry...");
+    final FunctionalGroupRegistry registry = FunctionalGroupRegistry
+        .getInstance(FunctionalGroupRegistry.SMARTS);
+    assertSame(registry, FunctionalGroupRegistry.getInstance());
+    assertTrue(registry.getErrors().isEmpty());
+    assertFalse(registry.getGroups().isEmpty());
+    assertTrue(FunctionalGroupRegistry.getInstance(
+        FunctionalGroupRegistry.DAYLIGHT).getErrors().isEmpty());
+  }
+
+
+  @Test
+  public void parallelMatchTest() throws Exception {
+    System.out.println("Testing parallel functional group matching...");
+    final FunctionalGroupRegistry registry =
+        FunctionalGroupRegistry.getInstance();
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    for (final String name : new String[] {"aspirin", "book1-004-05",
+                                           "book1-006-03", "book1-012-00",
+                                           "US06358966-20020319-C00001"}) {
+      IAtomContainer molecule;
+      try (MDLV2000Reader reader = new MDLV2000Reader(new FileInputStream(
+               Paths.get(testSources, name + ".mol").toFile()))) {
+        molecule = reader.read(SilentChemObjectBuilder.getInstance()
+                               .newInstance(IAtomContainer.class));
+      }
+      final Map<String, int[][]> parallel = registry.match(molecule, pool);
+      final Map<String, int[][]> sequential = registry.match(molecule);
+      assertEquals(name, new ArrayList<>(sequential.keySet()),
+                   new ArrayList<>(parallel.keySet()));
+      for (final FunctionalGroupRegistry.Group group : registry.getGroups()) {
+        final int[][] expected = sequential.get(group.getName());
+        if (expected == null) {
+          continue;
+        }
+        assertArrayEquals(name + ": " + group.getName(),
+                          group.getPattern().matchAll(molecule.clone())
+                          .uniqueAtoms().toArray(),
+                          expected);
+        assertArrayEquals(name + ": " + group.getName(), expected,
+                          parallel.get(group.getName()));
+      }
+    }
+    pool.shutdown();
+  }
+
+}
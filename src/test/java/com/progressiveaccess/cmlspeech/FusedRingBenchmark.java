@@ -0,0 +1,91 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   FusedRingBenchmark.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 12:58:44 2026
+ *
+ * @brief  Scaling benchmark for the fused ring analysis.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech;
+
+import com.progressiveaccess.cmlspeech.analysis.FusedRingAnalysis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the fused ring analysis on sheets growing to hundreds of rings.
+ * Sheets are square, acenes have all rings in one row.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Thread)
+public class FusedRingBenchmark {
+
+  @Param({"2", "4", "8", "12", "16", "20"})
+  public int size;
+
+  @Param({"sheet", "acene"})
+  public String shape;
+
+  private IAtomContainer system;
+
+
+  /**
+   * Generates a fused system with size times size rings.
+   */
+  @Setup(Level.Trial)
+  public void generate() {
+    this.system = this.shape.equals("sheet")
+        ? SyntheticMolecules.fusedSheet(this.size, this.size)
+        : SyntheticMolecules.fusedSheet(1, this.size * this.size);
+  }
+
+
+  /**
+   * Benchmarks the computation of rings, rim, shared bonds and bridge atoms.
+   *
+   * @return The analysis.
+   */
+  @Benchmark
+  public FusedRingAnalysis analyse() {
+    return new FusedRingAnalysis(this.system);
+  }
+
+}
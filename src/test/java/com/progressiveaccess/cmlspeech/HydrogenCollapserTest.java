@@ -0,0 +1,120 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   HydrogenCollapserTest.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 21:52:30 2026
+ *
+ * @brief  Tests for folding explicit hydrogens.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.progressiveaccess.cmlspeech.analysis.HydrogenCollapser;
+
+import org.junit.Test;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IChemFile;
+import org.openscience.cdk.io.CMLReader;
+import org.openscience.cdk.silent.ChemFile;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.smiles.SmilesParser;
+import org.openscience.cdk.tools.manipulator.ChemFileManipulator;
+
+import java.io.FileInputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Tests for the hydrogen collapsing preprocessing stage.
+ */
+public class HydrogenCollapserTest {
+
+  /**
+   * @param smiles
+   *          A SMILES string.
+   *
+   * @return The molecule with explicit hydrogens as written.
+   *
+   * @throws Exception
+   *          If the string cannot be parsed.
+   */
+  private static IAtomContainer smiles(final String smiles) throws Exception {
+    return new SmilesParser(SilentChemObjectBuilder.getInstance())
+        .parseSmiles(smiles);
+  }
+
+
+  @Test
+  public void methaneTest() throws Exception {
+    System.out.println("Testing hydrogen collapsing on page input...");
+    final IChemFile file = new CMLReader(new FileInputStream(
+        "data/page1-1.xml")).read(new ChemFile());
+    final IAtomContainer molecule =
+        ChemFileManipulator.getAllAtomContainers(file).get(0);
+    final HydrogenCollapser collapser = new HydrogenCollapser(molecule);
+    final IAtomContainer collapsed = collapser.getMolecule();
+    assertEquals(1, collapsed.getAtomCount());
+    assertEquals(0, collapsed.getBondCount());
+    assertEquals(4, collapsed.getAtom(0).getImplicitHydrogenCount()
+                 .intValue());
+    assertEquals(4, collapser.getCount().intValue());
+    assertEquals(Arrays.asList("a2", "a3", "a4", "a5"),
+                 collapser.getHydrogens("a1"));
+    assertEquals(Arrays.asList("b4", "b3", "b2", "b1"),
+                 collapser.getBonds("a1"));
+    assertEquals("a1", collapser.getHeavyAtom("a3"));
+    assertEquals(5, molecule.getAtomCount());
+    assertEquals(0, molecule.getAtom(0).getImplicitHydrogenCount()
+                 .intValue());
+  }
+
+
+  @Test
+  public void keptTest() throws Exception {
+    System.out.println("Testing hydrogens that are kept...");
+    final HydrogenCollapser methanol =
+        new HydrogenCollapser(smiles("[H]C([H])([H])O[H]"));
+    assertEquals(2, methanol.getMolecule().getAtomCount());
+    assertEquals(Arrays.asList("a1", "a3", "a4"),
+                 methanol.getHydrogens("a2"));
+    assertEquals(Collections.singletonList("a6"),
+                 methanol.getHydrogens("a5"));
+    final HydrogenCollapser deuterated =
+        new HydrogenCollapser(smiles("[2H]C([H])([H])[H]"));
+    assertEquals(2, deuterated.getMolecule().getAtomCount());
+    assertNull(deuterated.getHeavyAtom("a1"));
+    assertEquals(3, deuterated.getCount().intValue());
+    assertEquals(0, new HydrogenCollapser(smiles("[H][H]")).getCount()
+                 .intValue());
+    assertEquals(0, new HydrogenCollapser(smiles("[H+]")).getCount()
+                 .intValue());
+    final HydrogenCollapser hydride =
+        new HydrogenCollapser(smiles("[H-].[H]Cl"));
+    assertEquals(Collections.singletonList("a2"),
+                 hydride.getHydrogens("a3"));
+    assertNull(hydride.getHeavyAtom("a1"));
+  }
+
+}
@@ -0,0 +1,159 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   IndexedStructureTest.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 23:12:41 2026
+ *
+ * @brief  Tests for the index based molecule graph.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech;
+
+import static org.junit.Assert.assertEquals;
+
+import com.progressiveaccess.cmlspeech.analysis.IndexedStructure;
+
+import org.junit.Test;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IChemFile;
+import org.openscience.cdk.io.CMLReader;
+import org.openscience.cdk.silent.ChemFile;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.smiles.SmilesParser;
+import org.openscience.cdk.tools.manipulator.ChemFileManipulator;
+
+import java.io.FileInputStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Tests for adjacency and identifier mapping of indexed structures.
+ */
+public class IndexedStructureTest {
+
+  /**
+   * @param structure
+   *          An indexed structure.
+   * @param atom
+   *          An atom index.
+   *
+   * @return The neighbours of the atom.
+   */
+  private static Set<Integer> neighbours(final IndexedStructure structure,
+      final int atom) {
+    final Set<Integer> result = new TreeSet<>();
+    for (int k = 0; k < structure.degree(atom); k++) {
+      result.add(structure.neighbour(atom, k));
+    }
+    return result;
+  }
+
+
+  /**
+   * Checks that adjacency agrees with the bond list and that identifiers
+   * and indices translate into each other.
+   *
+   * @param structure
+   *          An indexed structure.
+   */
+  private static void checkConsistent(final IndexedStructure structure) {
+    int incidences = 0;
+    for (int atom = 0; atom < structure.getAtomCount(); atom++) {
+      assertEquals(atom, structure.atomIndex(structure.atomId(atom)));
+      for (int k = 0; k < structure.degree(atom); k++) {
+        final int neighbour = structure.neighbour(atom, k);
+        final int bond = structure.edge(atom, k);
+        assertEquals(bond, structure.bond(atom, neighbour));
+        assertEquals(bond, structure.bond(neighbour, atom));
+        assertEquals(atom + neighbour,
+                     structure.source(bond) + structure.target(bond));
+        incidences++;
+      }
+    }
+    assertEquals(2 * structure.getBondCount(), incidences);
+    for (int bond = 0; bond < structure.getBondCount(); bond++) {
+      assertEquals(bond, structure.bondIndex(structure.bondId(bond)));
+    }
+  }
+
+
+  @Test
+  public void disconnectedTest() throws Exception {
+    System.out.println("Testing indexing of a disconnected molecule...");
+    final IndexedStructure structure = new IndexedStructure(
+        new SmilesParser(SilentChemObjectBuilder.getInstance())
+        .parseSmiles("OCC.[Na+].C1CC1"));
+    checkConsistent(structure);
+    assertEquals(7, structure.getAtomCount());
+    assertEquals(5, structure.getBondCount());
+    assertEquals(new TreeSet<>(Arrays.asList(0, 2)),
+                 neighbours(structure, 1));
+    assertEquals(0, structure.degree(3));
+    assertEquals(new TreeSet<>(Arrays.asList(5, 6)),
+                 neighbours(structure, 4));
+    assertEquals(-1, structure.bond(2, 4));
+    assertEquals(-1, structure.bond(3, 3));
+    assertEquals("a4", structure.atomId(3));
+    assertEquals("b3", structure.bondId(2));
+    assertEquals(2, structure.bondIndex("b3"));
+    assertEquals(-1, structure.atomIndex("a8"));
+    assertEquals(-1, structure.bondIndex("a1"));
+    final BitSet atoms = structure.atomSet(
+        Arrays.asList("a7", "a4", "x1", "a1"));
+    assertEquals(3, atoms.cardinality());
+    assertEquals(Arrays.asList("a1", "a4", "a7"), structure.atomIds(atoms));
+  }
+
+
+  @Test
+  public void hydrogenTest() throws Exception {
+    System.out.println("Testing indexing with explicit hydrogens...");
+    final IChemFile file = new CMLReader(new FileInputStream(
+        "data/page1-1.xml")).read(new ChemFile());
+    final IAtomContainer molecule =
+        ChemFileManipulator.getAllAtomContainers(file).get(0);
+    final IndexedStructure structure = new IndexedStructure(molecule);
+    checkConsistent(structure);
+    assertEquals(5, structure.getAtomCount());
+    assertEquals(4, structure.getBondCount());
+    final int carbon = structure.atomIndex("a1");
+    assertEquals(4, structure.degree(carbon));
+    assertEquals(new TreeSet<>(Arrays.asList(1, 2, 3, 4)),
+                 neighbours(structure, carbon));
+    for (int hydrogen = 1; hydrogen < 5; hydrogen++) {
+      assertEquals(1, structure.degree(hydrogen));
+      assertEquals(carbon, structure.neighbour(hydrogen, 0));
+      assertEquals("H", molecule.getAtom(hydrogen).getSymbol());
+    }
+    final int bond = structure.bond(carbon, structure.atomIndex("a3"));
+    assertEquals("b3", structure.bondId(bond));
+    assertEquals(molecule.getBond(bond), molecule.getBond(
+        molecule.getAtom(carbon), molecule.getAtom(2)));
+    final BitSet bonds = new BitSet();
+    bonds.set(structure.bondIndex("b4"));
+    bonds.set(structure.bondIndex("b1"));
+    assertEquals(Arrays.asList("b1", "b4"), structure.bondIds(bonds));
+  }
+
+}
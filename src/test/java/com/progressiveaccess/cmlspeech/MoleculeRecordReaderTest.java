@@ -0,0 +1,129 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   MoleculeRecordReaderTest.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 13:31:08 2026
+ *
+ * @brief  Tests for splitting multi-record files.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.progressiveaccess.cmlspeech.base.MoleculeRecordReader;
+
+import org.junit.Test;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.MDLV2000Reader;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splitting of SD files and multi-molecule CML into single records.
+ */
+public class MoleculeRecordReaderTest {
+
+  private static String testSources = "src/main/resources/test_files/molecule";
+
+
+  /**
+   * Reads all records of a string.
+   *
+   * @param input
+   *          The file contents.
+   * @param format
+   *          The format of the records.
+   *
+   * @return The records.
+   */
+  private List<MoleculeRecordReader.Record> records(
+      final String input, final MoleculeRecordReader.Format format) {
+    final List<MoleculeRecordReader.Record> result = new ArrayList<>();
+    new MoleculeRecordReader(new StringReader(input), format)
+        .forEachRemaining(result::add);
+    return result;
+  }
+
+
+  @Test
+  public void sdfTest() throws Exception {
+    System.out.println("Testing SDF records...");
+    final String aspirin = new String(Files.readAllBytes(
+        Paths.get(testSources, "aspirin.mol")), StandardCharsets.UTF_8);
+    final String ovalene = new String(Files.readAllBytes(
+        Paths.get(testSources, "ovalene.mol")), StandardCharsets.UTF_8);
+    final List<MoleculeRecordReader.Record> records = this.records(
+        aspirin + "> <ID>\n1\n\n$$$$\n" + ovalene + "$$$$\n\n",
+        MoleculeRecordReader.Format.SDF);
+    assertEquals(2, records.size());
+    assertEquals(1, records.get(0).getIndex().intValue());
+    assertEquals(2, records.get(1).getIndex().intValue());
+    final int[] atoms = {13, 32};
+    for (int i = 0; i < atoms.length; i++) {
+      try (MDLV2000Reader reader = new MDLV2000Reader(
+               new StringReader(records.get(i).getText()))) {
+        final IAtomContainer molecule = reader.read(
+            SilentChemObjectBuilder.getInstance()
+            .newInstance(IAtomContainer.class));
+        assertEquals(atoms[i], molecule.getAtomCount());
+      }
+    }
+  }
+
+
+  @Test
+  public void cmlTest() throws Exception {
+    System.out.println("Testing CML records...");
+    final String molecule = "<molecule id=\"m%d\"><atomArray>"
+        + "<atom id=\"a1\" elementType=\"C\"/></atomArray></molecule>";
+    final String document = "<?xml version=\"1.0\"?>\n"
+        + "<cml xmlns=\"http://www.xml-cml.org/schema\">"
+        + "<!-- <molecule> --><molecule id=\"outer\">"
+        + String.format(molecule, 0) + "</molecule>"
+        + String.format(molecule, 1) + "</cml>\n"
+        + "<?xml version=\"1.0\"?>\n" + String.format(molecule, 2);
+    final List<MoleculeRecordReader.Record> records =
+        this.records(document, MoleculeRecordReader.Format.CML);
+    assertEquals(3, records.size());
+    final String first = records.get(0).getText();
+    assertTrue(first.contains("<cml xmlns=\"http://www.xml-cml.org/schema\">"
+                              + "<molecule id=\"outer\">"));
+    assertTrue(first.endsWith("</molecule></molecule></cml>"));
+    final String second = records.get(1).getText();
+    assertTrue(second.contains("<cml xmlns=\"http://www.xml-cml.org/schema\">"
+                               + "<molecule id=\"m1\">"));
+    assertFalse(second.contains("outer"));
+    final String third = records.get(2).getText();
+    assertFalse(third.contains("<cml"));
+    assertTrue(third.endsWith("</molecule>"));
+  }
+
+}
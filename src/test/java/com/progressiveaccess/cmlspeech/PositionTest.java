@@ -29,7 +29,9 @@
 package com.progressiveaccess.cmlspeech;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 
+import com.progressiveaccess.cmlspeech.analysis.ChainAnalysis;
 import com.progressiveaccess.cmlspeech.analysis.RichStructureHelper;
 import com.progressiveaccess.cmlspeech.base.Cli;
 import com.progressiveaccess.cmlspeech.base.CmlEnricher;
@@ -38,11 +40,16 @@ import com.progressiveaccess.cmlspeech.structure.RichSuperSet;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.MDLV2000Reader;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
 
+import java.io.FileInputStream;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.TreeSet;
 
 /**
  * A basic environment to run position tests.
@@ -128,6 +135,42 @@ public class PositionTest {
   }
 
 
+  /**
+   * Compares the chains computed by the chain analysis against the expected
+   * atoms. Atoms are named by their position in the file.
+   *
+   * @param input
+   *          The molecule to work with. Is loaded form file.
+   * @param atoms
+   *          The expected atoms of the only chain.
+   * @param ordered
+   *          If the atoms have to form the chain in numbering order.
+   *
+   * @throws Exception
+   *          If the file cannot be read.
+   */
+  public void compareChain(final String input, final String[] atoms,
+      final boolean ordered) throws Exception {
+    IAtomContainer container;
+    try (MDLV2000Reader reader = new MDLV2000Reader(new FileInputStream(
+             Paths.get(PositionTest.testSources, input).toFile()))) {
+      container = reader.read(SilentChemObjectBuilder.getInstance()
+                              .newInstance(IAtomContainer.class));
+    }
+    final List<List<String>> chains = new ChainAnalysis(container)
+        .getChainIds();
+    System.out.println(chains);
+    assertEquals(1, chains.size());
+    final List<String> actual = chains.get(0);
+    final List<String> expected = Arrays.asList(atoms);
+    if (!ordered) {
+      assertEquals(new TreeSet<>(expected), new TreeSet<>(actual));
+      return;
+    }
+    assertEquals(expected, actual);
+  }
+
+
   @Test
   public void chainTests() {
     System.out.println("Testing Aliphatic Chains...");
@@ -148,6 +191,35 @@ public class PositionTest {
   }
 
 
+  @Test
+  public void chainAnalysisTests() throws Exception {
+    System.out.println("Testing Chain Analysis...");
+    this.compareChain("chains/5-bromo-6-nonene.mol",
+        new String[] {"a10", "a9", "a8", "a7", "a6", "a5", "a4", "a3", "a2"},
+        true);
+    this.compareChain("chains/5-bromo-8-decene.mol",
+        new String[] {"a2", "a3", "a4", "a5", "a6", "a7", "a8", "a9", "a10",
+                      "a11"}, true);
+    this.compareChain("chains/6-bromo-2-decene.mol",
+        new String[] {"a11", "a10", "a9", "a8", "a7", "a6", "a5", "a4", "a3",
+                      "a2"}, true);
+    this.compareChain("chains/6-bromo-2-nonene.mol",
+        new String[] {"a10", "a9", "a8", "a7", "a6", "a5", "a4", "a3", "a2"},
+        true);
+    this.compareChain("chains/6-nonene.mol",
+        new String[] {"a9", "a8", "a7", "a6", "a5", "a4", "a3", "a2", "a1"},
+        true);
+    this.compareChain("chains/1_chloro_2_pentene.mol",
+        new String[] {"a5", "a4", "a3", "a2", "a1"}, true);
+    this.compareChain("molecule/book1-004-05.mol",
+        new String[] {"a2", "a9", "a10", "a12", "a13"}, false);
+    this.compareChain("molecule/book1-006-03.mol",
+        new String[] {"a2", "a9", "a10", "a12"}, false);
+    this.compareChain("molecule/US06358966-20020319-C00001.mol",
+        new String[] {"a20", "a21", "a29", "a30"}, false);
+  }
+
+
   @Test
   public void ringIntTests() {
     System.out.println("Testing Ring with Internal Substitutions...");
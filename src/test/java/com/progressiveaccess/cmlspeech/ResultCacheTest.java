@@ -0,0 +1,255 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   ResultCacheTest.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 15:24:10 2026
+ *
+ * @brief  Tests for the cache of enriched output.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.progressiveaccess.cmlspeech.base.ResultCache;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.io.MDLV2000Reader;
+import org.openscience.cdk.io.MDLV2000Writer;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import javax.vecmath.Point2d;
+
+/**
+ * Cache hits for redrawn molecules, identifier remapping and eviction.
+ */
+public class ResultCacheTest {
+
+  private static String testSources = "src/main/resources/test_files/molecule";
+
+  private static final String[] OPTIONS = {"-ao", "-nn"};
+
+  private static final String ASPIRIN = "<molecule id=\"aspirin\" />";
+
+  private static final String OVALENE = "<molecule id=\"ovalene\" />";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+
+  /**
+   * @return Aspirin.
+   *
+   * @throws Exception
+   *          If the molecule cannot be read.
+   */
+  private IAtomContainer aspirin() throws Exception {
+    try (MDLV2000Reader reader = new MDLV2000Reader(new FileInputStream(
+             Paths.get(testSources, "aspirin.mol").toFile()))) {
+      return reader.read(SilentChemObjectBuilder.getInstance()
+                         .newInstance(IAtomContainer.class));
+    }
+  }
+
+
+  /**
+   * Writes a molecule to a mol file.
+   *
+   * @param molecule
+   *          The molecule.
+   * @param name
+   *          The name of the file.
+   *
+   * @return The file.
+   *
+   * @throws Exception
+   *          If the molecule cannot be written.
+   */
+  private Path write(final IAtomContainer molecule, final String name)
+      throws Exception {
+    final Path file = this.folder.getRoot().toPath().resolve(name);
+    try (MDLV2000Writer writer = new MDLV2000Writer(
+             new FileOutputStream(file.toFile()))) {
+      writer.write(molecule);
+    }
+    return file;
+  }
+
+
+  /**
+   * Writes a copy of aspirin with the atoms in reverse order, moved right
+   * by 10.
+   *
+   * @return The file of the copy.
+   *
+   * @throws Exception
+   *          If the molecule cannot be read or written.
+   */
+  private Path reversedAspirin() throws Exception {
+    final IAtomContainer molecule = this.aspirin();
+    final IAtomContainer reversed = molecule.getBuilder().newInstance(
+        IAtomContainer.class);
+    for (int i = molecule.getAtomCount() - 1; i >= 0; i--) {
+      final IAtom atom = molecule.getAtom(i);
+      atom.getPoint2d().x += 10;
+      reversed.addAtom(atom);
+    }
+    for (final IBond bond : molecule.bonds()) {
+      reversed.addBond(bond);
+    }
+    return this.write(reversed, "reversed.mol");
+  }
+
+
+  /**
+   * @param body
+   *          Content of an enriched molecule.
+   *
+   * @return The enriched molecule.
+   */
+  private static String molecule(final String body) {
+    return "<molecule xmlns=\"http://www.xml-cml.org/schema\" xmlns:sre=\""
+        + "http://www.chemaccess.org/sre-schema\">" + body + "</molecule>";
+  }
+
+
+  @Test
+  public void remapTest() throws Exception {
+    System.out.println("Testing result cache remapping...");
+    final ResultCache cache = new ResultCache(10, null);
+    final ResultCache.Key original = ResultCache.key(
+        Paths.get(testSources, "aspirin.mol"), OPTIONS);
+    final ResultCache.Key reversed = ResultCache.key(
+        this.reversedAspirin(), OPTIONS);
+    assertEquals(original.getDigest(), reversed.getDigest());
+    assertNotEquals(original.getDigest(), ResultCache.key(
+        Paths.get(testSources, "aspirin.mol"), new String[] {"-nn"})
+                    .getDigest());
+    assertNull(cache.get(reversed));
+    cache.put(original, molecule(
+        "<atomArray><atom id=\"a1\" x2=\"0.0\" y2=\"-2.0\"/>"
+        + "<atom id=\"a13\"/></atomArray><bondArray>"
+        + "<bond id=\"b1\" atomRefs2=\"a1 a2\"/></bondArray>"
+        + "<atomSet id=\"as1\">a1 a2</atomSet>"
+        + "<sre:annotations><sre:annotation><sre:atom>a1</sre:atom>"
+        + "<sre:bond>b1</sre:bond></sre:annotation></sre:annotations>"));
+    final String output = cache.get(reversed);
+    assertTrue(output.contains(
+        "<atom id=\"a13\" x2=\"10.0\" y2=\"-2.0\" />"));
+    assertTrue(output.contains("<atom id=\"a1\" x2=\""));
+    assertTrue(output.contains("<atomSet id=\"as1\">a13 a12</atomSet>"));
+    assertTrue(output.contains("<sre:atom>a13</sre:atom>"));
+    assertEquals(1, cache.getHits().intValue());
+    assertEquals(1, cache.getMisses().intValue());
+    cache.put(original, "<molecule>");
+    assertNull(cache.get(reversed));
+    assertEquals(2, cache.getMisses().intValue());
+  }
+
+
+  @Test
+  public void isotopeTest() throws Exception {
+    System.out.println("Testing result cache keys of isotopologues...");
+    final IAtomContainer molecule = this.aspirin();
+    molecule.getAtom(0).setMassNumber(13);
+    assertNotEquals(ResultCache.key(Paths.get(testSources, "aspirin.mol"),
+                                    OPTIONS).getDigest(),
+                    ResultCache.key(this.write(molecule, "labelled.mol"),
+                                    OPTIONS).getDigest());
+  }
+
+
+  /**
+   * Draws 1-aminoethanol with a wedge at the stereo centre.
+   *
+   * @param stereo
+   *          The wedge.
+   *
+   * @return The molecule.
+   */
+  private static IAtomContainer aminoethanol(final IBond.Stereo stereo) {
+    final IAtomContainer molecule = SilentChemObjectBuilder.getInstance()
+        .newInstance(IAtomContainer.class);
+    final String[] symbols = {"C", "C", "N", "O"};
+    final double[][] points = {{0, 0}, {1.5, 0}, {-0.75, 1.3},
+                               {-0.75, -1.3}};
+    for (int i = 0; i < symbols.length; i++) {
+      final IAtom atom = molecule.getBuilder().newInstance(
+          IAtom.class, symbols[i]);
+      atom.setPoint2d(new Point2d(points[i][0], points[i][1]));
+      atom.setImplicitHydrogenCount(i == 0 ? 1 : i == 1 ? 3 : i == 2 ? 2 : 1);
+      molecule.addAtom(atom);
+    }
+    for (int i = 1; i < symbols.length; i++) {
+      molecule.addBond(0, i, IBond.Order.SINGLE);
+    }
+    molecule.getBond(0).setStereo(stereo);
+    return molecule;
+  }
+
+
+  @Test
+  public void stereoTest() throws Exception {
+    System.out.println("Testing result cache keys of stereoisomers...");
+    final String up = ResultCache.key(this.write(
+        aminoethanol(IBond.Stereo.UP), "up.mol"), OPTIONS).getDigest();
+    assertEquals(up, ResultCache.key(this.write(
+        aminoethanol(IBond.Stereo.UP), "again.mol"), OPTIONS).getDigest());
+    assertNotEquals(up, ResultCache.key(this.write(
+        aminoethanol(IBond.Stereo.DOWN), "down.mol"), OPTIONS).getDigest());
+  }
+
+
+  @Test
+  public void tierTest() throws Exception {
+    System.out.println("Testing result cache tiers...");
+    final Path directory = this.folder.getRoot().toPath().resolve("cache");
+    final ResultCache.Key aspirin = ResultCache.key(
+        Paths.get(testSources, "aspirin.mol"), OPTIONS);
+    final ResultCache.Key ovalene = ResultCache.key(
+        Paths.get(testSources, "ovalene.mol"), OPTIONS);
+    final ResultCache memory = new ResultCache(1, null);
+    memory.put(aspirin, ASPIRIN);
+    memory.put(ovalene, OVALENE);
+    assertNull(memory.get(aspirin));
+    assertEquals(OVALENE, memory.get(ovalene));
+    final ResultCache disk = new ResultCache(1, directory);
+    disk.put(aspirin, ASPIRIN);
+    disk.put(ovalene, OVALENE);
+    assertEquals(ASPIRIN, disk.get(aspirin));
+    assertEquals(OVALENE, new ResultCache(1, directory).get(ovalene));
+  }
+
+}
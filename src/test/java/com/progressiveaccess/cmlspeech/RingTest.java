@@ -31,6 +31,7 @@ package com.progressiveaccess.cmlspeech;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertTrue;
 
+import com.progressiveaccess.cmlspeech.analysis.FusedRingAnalysis;
 import com.progressiveaccess.cmlspeech.analysis.RichStructureHelper;
 import com.progressiveaccess.cmlspeech.base.Cli;
 import com.progressiveaccess.cmlspeech.base.CmlEnricher;
@@ -41,7 +42,11 @@ import com.google.common.collect.Lists;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.MDLV2000Reader;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
 
+import java.io.FileInputStream;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
@@ -83,6 +88,33 @@ public class RingTest {
   }
 
 
+  /**
+   * Analyses the fused ring system of a molecule file directly, naming atoms
+   * by their position in the file.
+   *
+   * @param input
+   *          Name of the input file.
+   *
+   * @return The fused ring analysis.
+   *
+   * @throws Exception
+   *          If the file cannot be read.
+   */
+  private FusedRingAnalysis analyseRings(final String input)
+      throws Exception {
+    IAtomContainer container;
+    try (MDLV2000Reader reader = new MDLV2000Reader(new FileInputStream(
+             Paths.get(RingTest.testSources, input).toFile()))) {
+      container = reader.read(SilentChemObjectBuilder.getInstance()
+                              .newInstance(IAtomContainer.class));
+    }
+    for (int i = 0; i < container.getAtomCount(); i++) {
+      container.getAtom(i).setID("a" + (i + 1));
+    }
+    return new FusedRingAnalysis(container);
+  }
+
+
   /**
    * Compares two sets.
    *
@@ -181,4 +213,98 @@ public class RingTest {
     this.compareSubSystems("rings_fused_simple_ext/fused_ext2.mol", "as1", 3);
     this.compareSubSystems("rings_fused_inner/ovalene.mol", "as1", 10);
   }
+
+
+  /**
+   * Compares the rim computed by the fused ring analysis against the expected
+   * one.
+   *
+   * @param input
+   *          The input molecule that is loaded from file.
+   * @param expected
+   *          The expected rim elements.
+   *
+   * @throws Exception
+   *          If the file cannot be read.
+   */
+  public void compareAnalysedRim(final String input, final String[] expected)
+      throws Exception {
+    final FusedRingAnalysis analysis = this.analyseRings(input);
+    this.compareSets(analysis.atomIds(analysis.getRim()), expected);
+  }
+
+
+  /**
+   * Compares the number of rings computed by the fused ring analysis against
+   * the expected one.
+   *
+   * @param input
+   *          The input molecule that is loaded from file.
+   * @param expected
+   *          The expected number of rings.
+   *
+   * @throws Exception
+   *          If the file cannot be read.
+   */
+  public void compareAnalysedRings(final String input, final Integer expected)
+      throws Exception {
+    assertTrue(this.analyseRings(input).getRings().size() == expected);
+  }
+
+
+  @Test
+  public void analysedRimTest() throws Exception {
+    System.out.println("Testing rims of fused ring analysis...");
+    this.compareAnalysedRim("rings_fused_simple/1H-indeno[7,1-bc]azepine.mol",
+        new String[] {"a1", "a2", "a3", "a4", "a5", "a7", "a8",
+                      "a9", "a10", "a11", "a12", "a13"});
+    this.compareAnalysedRim("rings_fused_simple/Pyrido[2,3-b]naphthalene.mol",
+        new String[] {"a1", "a2", "a3", "a4", "a5", "a6", "a7", "a8",
+                      "a9", "a10", "a11", "a12", "a13", "a14"});
+    this.compareAnalysedRim("rings_fused_simple/pyridine.mol",
+        new String[] {"a1", "a2", "a3", "a4", "a5", "a6", "a7", "a8",
+                      "a9", "a10", "a11", "a12", "a13", "a14", "a15",
+                      "a16", "a17", "a18", "a19", "a20"});
+    this.compareAnalysedRim("rings_fused_simple_ext/fused_ext1.mol",
+        new String[] {"a1", "a2", "a3", "a4", "a5", "a7", "a8",
+                      "a9", "a10", "a11", "a12", "a13"});
+    this.compareAnalysedRim("rings_fused_simple_ext/fused_ext2.mol",
+        new String[] {"a1", "a2", "a3", "a4", "a5", "a7", "a8",
+                      "a9", "a10", "a11", "a12", "a13"});
+    this.compareAnalysedRim("rings_fused_inner/ovalene.mol",
+        new String[] {"a1", "a2", "a3", "a4", "a5", "a6", "a7", "a8",
+                      "a9", "a10", "a11", "a12", "a13", "a14", "a15",
+                      "a16", "a17", "a18", "a19", "a20", "a21", "a22"});
+  }
+
+
+  @Test
+  public void analysedSyntheticRimTest() {
+    System.out.println("Testing rims of holes and bridged rings...");
+    final FusedRingAnalysis annulus = new FusedRingAnalysis(
+        SyntheticMolecules.fusedAnnulus(3, 4));
+    this.compareSets(annulus.atomIds(annulus.getRim()),
+        new String[] {"a1", "a2", "a3", "a5", "a6", "a7", "a8", "a11",
+                      "a12", "a15", "a16", "a17", "a21", "a22", "a23",
+                      "a24", "a26", "a27", "a28", "a29", "a31", "a32",
+                      "a35", "a36", "a37", "a38"});
+    final FusedRingAnalysis bridged = new FusedRingAnalysis(
+        SyntheticMolecules.bridged(2));
+    this.compareSets(bridged.atomIds(bridged.getRim()),
+        new String[] {"a1", "a2", "a3", "a4", "a7", "a8"});
+  }
+
+
+  @Test
+  public void analysedRingsTest() throws Exception {
+    System.out.println("Testing rings of fused ring analysis...");
+    this.compareAnalysedRings(
+        "rings_fused_simple/1H-indeno[7,1-bc]azepine.mol", 3);
+    this.compareAnalysedRings(
+        "rings_fused_simple/Pyrido[2,3-b]naphthalene.mol", 3);
+    this.compareAnalysedRings("rings_fused_simple/pyridine.mol", 5);
+    this.compareAnalysedRings("rings_fused_simple_ext/fused_ext1.mol", 3);
+    this.compareAnalysedRings("rings_fused_simple_ext/fused_ext2.mol", 3);
+    this.compareAnalysedRings("rings_fused_inner/ovalene.mol", 10);
+  }
 }
@@ -0,0 +1,283 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   ScalingTest.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 18:02:36 2026
+ *
+ * @brief  Scaling of the enrichment stages with molecule size.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech;
+
+import static org.junit.Assert.assertTrue;
+
+import com.progressiveaccess.cmlspeech.base.App;
+import com.progressiveaccess.cmlspeech.base.Cli;
+import com.progressiveaccess.cmlspeech.base.CmlEnricher;
+import com.progressiveaccess.cmlspeech.base.StageStats;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs the enrichment pipeline on synthetic molecules of growing size and
+ * fits time and allocated bytes of every stage against the number of atoms.
+ *
+ * <p>The slope of the least squares line through log(cost) over log(atoms)
+ * is the empirical exponent of a stage: 1 is linear, 2 quadratic. The test
+ * fails if an exponent exceeds the threshold. Stages are timed with
+ * {@link StageStats}; every size is run several times and the cheapest run
+ * kept. Stages whose largest time is below the clock resolution that
+ * matters are reported but not fitted. The suite is slow and excluded from
+ * the normal test run; run it with the {@code scaling} profile. System
+ * properties {@code scaling.atoms} (comma separated target atom counts),
+ * {@code scaling.repeats} and {@code scaling.threshold} adjust it.
+ */
+public class ScalingTest {
+
+  private static final String[] OPTIONS = {"-ao", "-a", "-t", "-nn"};
+
+  private static final double MINIMUM_MILLIS = 10;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+
+  /**
+   * Generates a molecule of one of the synthetic shapes.
+   *
+   * @param shape
+   *          The shape: chain, tree, sheet or mixed.
+   * @param atoms
+   *          The approximate number of atoms.
+   *
+   * @return The molecule.
+   */
+  private static IAtomContainer generate(final String shape,
+      final int atoms) {
+    switch (shape) {
+      case "chain":
+        return SyntheticMolecules.chain(atoms);
+      case "tree":
+        return SyntheticMolecules.tree(Math.max(
+            1, (int) Math.round(Math.log(atoms / 4.0) / Math.log(2))), 2);
+      case "sheet":
+        final int side =
+            Math.max(1, (int) Math.round(Math.sqrt(atoms / 2.0)));
+        return SyntheticMolecules.fusedSheet(side, side);
+      default:
+        return SyntheticMolecules.mixed(Math.max(1, atoms / 11));
+    }
+  }
+
+
+  /**
+   * Writes a molecule to a CML file, as molfiles are limited to 999 atoms.
+   *
+   * @param molecule
+   *          The molecule.
+   * @param name
+   *          The base name of the file.
+   *
+   * @return The file.
+   *
+   * @throws Exception
+   *          If the file cannot be written.
+   */
+  private Path write(final IAtomContainer molecule, final String name)
+      throws Exception {
+    final Path file = this.folder.getRoot().toPath().resolve(name + ".cml");
+    final List<String> lines = new ArrayList<>();
+    lines.add("<molecule id=\"m1\" xmlns=\"http://www.xml-cml.org/schema\">");
+    lines.add("<atomArray>");
+    for (final IAtom atom : molecule.atoms()) {
+      lines.add(String.format(Locale.ROOT,
+          "<atom id=\"%s\" elementType=\"%s\" hydrogenCount=\"%d\""
+          + " x2=\"%.4f\" y2=\"%.4f\"/>", atom.getID(), atom.getSymbol(),
+          atom.getImplicitHydrogenCount(), atom.getPoint2d().x,
+          atom.getPoint2d().y));
+    }
+    lines.add("</atomArray>");
+    lines.add("<bondArray>");
+    for (final IBond bond : molecule.bonds()) {
+      lines.add(String.format(Locale.ROOT,
+          "<bond id=\"%s\" atomRefs2=\"%s %s\" order=\"%d\"/>",
+          bond.getID(), bond.getAtom(0).getID(), bond.getAtom(1).getID(),
+          bond.getOrder().numeric()));
+    }
+    lines.add("</bondArray>");
+    lines.add("</molecule>");
+    Files.write(file, lines, StandardCharsets.UTF_8);
+    return file;
+  }
+
+
+  /**
+   * Runs all stages once on a molecule file.
+   *
+   * @param file
+   *          The molecule file.
+   * @param stats
+   *          The statistics to record in.
+   *
+   * @throws Exception
+   *          If enrichment fails.
+   */
+  private static void enrich(final Path file, final StageStats stats)
+      throws Exception {
+    final String[] dummy = {"-nn"};
+    Cli.init(dummy);
+    final CmlEnricher enricher = new CmlEnricher(file.toString());
+    try (StageStats.Timer timer = stats.time("load")) {
+      enricher.loadMolecule();
+    }
+    try (StageStats.Timer timer = stats.time("analyse")) {
+      enricher.analyseMolecule();
+    }
+    final String[] args = Arrays.copyOf(OPTIONS, OPTIONS.length + 1);
+    args[OPTIONS.length] = file.toString();
+    try (StageStats.Timer timer = stats.time("enrich")) {
+      App.main(args);
+    }
+    final String name = file.getFileName().toString();
+    Files.deleteIfExists(Paths.get(
+        name.substring(0, name.lastIndexOf('.')) + "-enr.cml"));
+  }
+
+
+  /**
+   * Computes the slope of the least squares line through the points in log
+   * log space.
+   *
+   * @param points
+   *          The cost by number of atoms.
+   *
+   * @return The exponent.
+   */
+  private static double exponent(final Map<Integer, Double> points) {
+    final int size = points.size();
+    final double[] x = new double[size];
+    final double[] y = new double[size];
+    double meanX = 0;
+    double meanY = 0;
+    int i = 0;
+    for (final Map.Entry<Integer, Double> point : points.entrySet()) {
+      x[i] = Math.log(point.getKey());
+      y[i] = Math.log(Math.max(point.getValue(), 1e-3));
+      meanX += x[i] / size;
+      meanY += y[i++] / size;
+    }
+    double covariance = 0;
+    double variance = 0;
+    for (i = 0; i < size; i++) {
+      covariance += (x[i] - meanX) * (y[i] - meanY);
+      variance += (x[i] - meanX) * (x[i] - meanX);
+    }
+    return covariance / variance;
+  }
+
+
+  @Test
+  public void scalingTest() throws Exception {
+    System.out.println("Testing scaling of enrichment stages...");
+    final List<Integer> sizes = new ArrayList<>();
+    for (final String size
+             : System.getProperty("scaling.atoms", "100,200,400,800")
+             .split(",")) {
+      sizes.add(Integer.parseInt(size.trim()));
+    }
+    final int repeats = Integer.getInteger("scaling.repeats", 3);
+    final double threshold = Double.parseDouble(
+        System.getProperty("scaling.threshold", "1.5"));
+    final Path report = this.folder.getRoot().toPath().resolve("stats.tsv");
+    try (StageStats stats = new StageStats(report)) {
+      for (final String shape : new String[] {"chain", "tree", "sheet",
+                                              "mixed"}) {
+        stats.begin("warmup");
+        enrich(this.write(generate(shape, sizes.get(0)), "warmup"), stats);
+        for (final Integer size : sizes) {
+          final IAtomContainer molecule = generate(shape, size);
+          final Path file = this.write(molecule, shape + "-" + size);
+          for (int i = 0; i < repeats; i++) {
+            stats.begin(shape);
+            enrich(file, stats);
+            stats.count(molecule.getAtomCount(), molecule.getBondCount());
+            stats.end();
+          }
+        }
+      }
+    }
+    final Map<String, Map<Integer, Double>> millis = new LinkedHashMap<>();
+    final Map<String, Map<Integer, Double>> bytes = new LinkedHashMap<>();
+    for (final String line
+             : Files.readAllLines(report, StandardCharsets.UTF_8)) {
+      final String[] fields = line.split("\t");
+      if (line.equals(StageStats.HEADER)) {
+        continue;
+      }
+      final String key = fields[0] + " " + fields[3];
+      final Integer atoms = Integer.parseInt(fields[1]);
+      millis.computeIfAbsent(key, k -> new TreeMap<>())
+          .merge(atoms, Double.parseDouble(fields[4]), Math::min);
+      bytes.computeIfAbsent(key, k -> new TreeMap<>())
+          .merge(atoms, Double.parseDouble(fields[5]), Math::min);
+    }
+    final List<String> failures = new ArrayList<>();
+    for (final String key : millis.keySet()) {
+      final Map<Integer, Double> time = millis.get(key);
+      final Map<Integer, Double> allocation = bytes.get(key);
+      final double timeExponent = exponent(time);
+      final double bytesExponent = exponent(allocation);
+      final boolean timed =
+          time.values().stream().anyMatch(t -> t >= MINIMUM_MILLIS);
+      final boolean allocated =
+          allocation.values().stream().allMatch(b -> b > 0);
+      System.out.println(String.format(
+          "%-16s time %s%5.2f  bytes %s%5.2f  %s", key, timed ? "" : "~",
+          timeExponent, allocated ? "" : "~", bytesExponent, time));
+      if (timed && timeExponent > threshold) {
+        failures.add(key + " time " + timeExponent);
+      }
+      if (allocated && bytesExponent > threshold) {
+        failures.add(key + " bytes " + bytesExponent);
+      }
+    }
+    assertTrue("Super-linear stages: " + failures, failures.isEmpty());
+  }
+
+}
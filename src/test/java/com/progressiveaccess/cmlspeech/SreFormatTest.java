@@ -0,0 +1,189 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   SreFormatTest.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 19:48:02 2026
+ *
+ * @brief  Tests for the alternative annotation output formats.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.progressiveaccess.cmlspeech.sre.SreAnnotation;
+import com.progressiveaccess.cmlspeech.sre.SreAnnotationReader;
+import com.progressiveaccess.cmlspeech.sre.SreBinaryReader;
+import com.progressiveaccess.cmlspeech.sre.SreBinaryWriter;
+import com.progressiveaccess.cmlspeech.sre.SreJsonWriter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversion of enriched CML into the binary and JSON annotation formats.
+ */
+public class SreFormatTest {
+
+  private static String testSources = "src/test/resources";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+
+  /**
+   * @param reference
+   *          An element reference or null.
+   *
+   * @return The reference as a string.
+   */
+  private static String describe(final SreAnnotation.Reference reference) {
+    return reference == null ? "-" : reference.getKind() + ":"
+        + reference.getId() + ":" + reference.getType();
+  }
+
+
+  /**
+   * @param annotation
+   *          An annotation.
+   *
+   * @return All content of the annotation as a string.
+   */
+  private static String describe(final SreAnnotation annotation) {
+    final StringBuilder result = new StringBuilder();
+    result.append(describe(annotation.getElement()))
+        .append(annotation.getAttributes())
+        .append(annotation.getPosition());
+    for (final List<SreAnnotation.Reference> list
+             : new ArrayList<List<SreAnnotation.Reference>>() {
+               {
+                 add(annotation.getParents());
+                 add(annotation.getChildren());
+                 add(annotation.getComponent());
+               }
+             }) {
+      result.append('[');
+      for (final SreAnnotation.Reference reference : list) {
+        result.append(describe(reference)).append(' ');
+      }
+      result.append(']');
+    }
+    for (final SreAnnotation.Neighbour neighbour
+             : annotation.getNeighbours()) {
+      result.append(describe(neighbour.getTarget()))
+          .append(neighbour.getAttributes());
+      for (final SreAnnotation.Via via : neighbour.getVias()) {
+        result.append(via.getType()).append(describe(via.getBond()))
+            .append(via.getPosition());
+      }
+    }
+    return result.toString();
+  }
+
+
+  /**
+   * Converts an enriched file to binary and compares every annotation
+   * looked up by key and by number with the one read from the CML.
+   *
+   * @param input
+   *          The enriched file relative to the test resources.
+   * @param annotations
+   *          The expected number of annotations.
+   *
+   * @throws Exception
+   *          If a file cannot be read or written.
+   */
+  private void compareBinary(final String input, final int annotations)
+      throws Exception {
+    final Path cml = Paths.get(testSources, input);
+    final Path binary = this.folder.getRoot().toPath().resolve("out.sre");
+    SreBinaryWriter.convert(cml, binary);
+    final SreBinaryReader reader = new SreBinaryReader(binary);
+    assertEquals(annotations, reader.size());
+    int count = 0;
+    try (SreAnnotationReader expected = SreAnnotationReader.open(cml)) {
+      while (expected.hasNext()) {
+        final SreAnnotation annotation = expected.next();
+        assertEquals(describe(annotation),
+                     describe(reader.get(annotation.getKey())));
+        assertEquals(describe(annotation), describe(reader.get(count++)));
+      }
+    }
+    assertEquals(annotations, count);
+    assertNull(reader.get("a1000"));
+  }
+
+
+  @Test
+  public void binaryTest() throws Exception {
+    System.out.println("Testing binary annotation format...");
+    this.compareBinary("simpleSpeech/book1-004-05-enr.cml", 14);
+    this.compareBinary("l10n/ja/aspirin-enr.cml", 31);
+    this.compareBinary("expertSpeech/US06358966-20020319-C00001-enr.cml",
+                       90);
+  }
+
+
+  /**
+   * Converts an enriched file to JSON and compares it with the expected
+   * output.
+   *
+   * @param input
+   *          The enriched file relative to the test resources.
+   * @param expected
+   *          The expected JSON relative to the test resources.
+   * @param locale
+   *          The locale of the speech.
+   *
+   * @throws Exception
+   *          If a file cannot be read or written.
+   */
+  private void compareJson(final String input, final String expected,
+      final String locale) throws Exception {
+    final Path json = this.folder.getRoot().toPath().resolve("out.json");
+    SreJsonWriter.convert(Paths.get(testSources, input), json, locale);
+    assertEquals(
+        new String(Files.readAllBytes(Paths.get(testSources, expected)),
+                   StandardCharsets.UTF_8),
+        new String(Files.readAllBytes(json), StandardCharsets.UTF_8));
+  }
+
+
+  @Test
+  public void jsonTest() throws Exception {
+    System.out.println("Testing JSON annotation format...");
+    this.compareJson("simpleSpeech/book1-004-05-enr.cml",
+                     "json/book1-004-05-enr.json", "english");
+    this.compareJson("l10n/ja/aspirin-enr.cml", "json/aspirin-enr.json",
+                     "ja");
+  }
+
+}
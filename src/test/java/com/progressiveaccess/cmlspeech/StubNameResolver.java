@@ -0,0 +1,74 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   StubNameResolver.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 14:07:50 2026
+ *
+ * @brief  Name resolver with a fixed table of names.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech;
+
+import com.progressiveaccess.cmlspeech.base.NameResolver;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resolves names from a fixed table, without any I/O. Counts lookups so
+ * tests can check that callers cache.
+ */
+public final class StubNameResolver implements NameResolver {
+
+  private final Map<String, String> names = new HashMap<>();
+  private Integer lookups = 0;
+
+
+  /**
+   * Constructs a resolver with a table of names.
+   *
+   * @param names
+   *          The names keyed by InChIKey.
+   */
+  public StubNameResolver(final Map<String, String> names) {
+    this.names.putAll(names);
+  }
+
+
+  @Override
+  public synchronized String resolve(final String inchiKey,
+      final IAtomContainer molecule) {
+    this.lookups++;
+    return this.names.get(inchiKey);
+  }
+
+
+  /**
+   * @return The number of lookups so far.
+   */
+  public synchronized Integer getLookups() {
+    return this.lookups;
+  }
+
+}
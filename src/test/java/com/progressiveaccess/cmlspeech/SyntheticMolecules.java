@@ -0,0 +1,392 @@
+// Copyright 2015 Volker Sorge
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+
+/**
+ * @file   SyntheticMolecules.java
+ * @author Volker Sorge
+ *          <a href="mailto:V.Sorge@progressiveaccess.com">Volker Sorge</a>
+ * @date   Sun Oct 18 12:40:13 2026
+ *
+ * @brief  Deterministic generator for large synthetic molecules.
+ *
+ *
+ */
+
+//
+
+package com.progressiveaccess.cmlspeech;
+
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.vecmath.Point2d;
+
+/**
+ * Generates synthetic molecules of configurable size for scaling tests:
+ * chains, combs, dendritic trees, fused ring sheets with and without a hole,
+ * bridged rings and mixed systems of rings, chains and functional groups.
+ * Generation is deterministic. Atoms and bonds are named a1, a2, ... and
+ * b1, b2, ... in order of creation.
+ */
+public final class SyntheticMolecules {
+
+  private static final Map<String, Integer> VALENCES = new HashMap<>();
+
+  static {
+    VALENCES.put("C", 4);
+    VALENCES.put("N", 3);
+    VALENCES.put("O", 2);
+  }
+
+  private final IAtomContainer molecule = SilentChemObjectBuilder
+      .getInstance().newInstance(IAtomContainer.class);
+  private final Map<Long, IAtom> grid = new HashMap<>();
+
+
+  /** Use the static factory methods. */
+  private SyntheticMolecules() { }
+
+
+  /**
+   * Creates a fused sheet of hexagonal carbon rings, laid out as a brick
+   * wall of rows by columns hexagons. A single row is an acene.
+   *
+   * @param rows
+   *          Number of rows of rings.
+   * @param columns
+   *          Number of rings per row.
+   *
+   * @return The fused ring system with rows times columns rings.
+   */
+  public static IAtomContainer fusedSheet(final int rows, final int columns) {
+    final SyntheticMolecules sheet = new SyntheticMolecules();
+    for (int y = 0; y < rows; y++) {
+      for (int k = 0; k < columns; k++) {
+        sheet.hexagon(2 * k + y % 2, y);
+      }
+    }
+    return sheet.saturate();
+  }
+
+
+  /**
+   * Creates the border of a fused sheet: the outer rings of a brick wall of
+   * rows by columns hexagons, with the inner ones left out. Like kekulene
+   * this is a ring of rings around a hole.
+   *
+   * @param rows
+   *          Number of rows of rings, at least 3.
+   * @param columns
+   *          Number of rings per row, at least 3.
+   *
+   * @return The fused ring system with a hole.
+   */
+  public static IAtomContainer fusedAnnulus(final int rows,
+      final int columns) {
+    final SyntheticMolecules annulus = new SyntheticMolecules();
+    for (int y = 0; y < rows; y++) {
+      for (int k = 0; k < columns; k++) {
+        if (y == 0 || y == rows - 1 || k == 0 || k == columns - 1) {
+          annulus.hexagon(2 * k + y % 2, y);
+        }
+      }
+    }
+    return annulus.saturate();
+  }
+
+
+  /**
+   * Creates a bridged bicyclic system: two bridgehead carbons joined by
+   * three carbon bridges of equal length, drawn above, through and below
+   * the axis of the bridgeheads. Length 2 gives bicyclo[2.2.2]octane.
+   *
+   * @param length
+   *          Number of carbon atoms per bridge.
+   *
+   * @return The bridged system. The bridgeheads are the first two atoms,
+   *     followed by the bridges from top to bottom.
+   */
+  public static IAtomContainer bridged(final int length) {
+    final SyntheticMolecules bridged = new SyntheticMolecules();
+    final IAtom left = bridged.atom("C", 0, 0);
+    final IAtom right = bridged.atom("C", length + 1, 0);
+    for (int j = 1; j >= -1; j--) {
+      IAtom previous = left;
+      for (int i = 1; i <= length; i++) {
+        final IAtom atom = bridged.atom("C", i, j);
+        bridged.bond(previous, atom, IBond.Order.SINGLE);
+        previous = atom;
+      }
+      bridged.bond(previous, right, IBond.Order.SINGLE);
+    }
+    return bridged.saturate();
+  }
+
+
+  /**
+   * Creates an unbranched alkane.
+   *
+   * @param length
+   *          Number of carbon atoms.
+   *
+   * @return The chain.
+   */
+  public static IAtomContainer chain(final int length) {
+    return comb(length, 0);
+  }
+
+
+  /**
+   * Creates a comb polymer: a backbone of carbon atoms with an unbranched
+   * side chain on every second backbone atom, as in polyolefins and lipids.
+   *
+   * @param backbone
+   *          Number of carbon atoms in the backbone.
+   * @param branch
+   *          Number of carbon atoms per side chain; 0 gives an alkane.
+   *
+   * @return The comb.
+   */
+  public static IAtomContainer comb(final int backbone, final int branch) {
+    final SyntheticMolecules comb = new SyntheticMolecules();
+    IAtom previous = null;
+    for (int i = 0; i < backbone; i++) {
+      final IAtom atom = comb.atom("C", 1.3 * i, 0.75 * (i % 2));
+      if (previous != null) {
+        comb.bond(previous, atom, IBond.Order.SINGLE);
+      }
+      previous = atom;
+      IAtom side = atom;
+      for (int j = 1; i % 2 == 1 && j <= branch; j++) {
+        final IAtom next = comb.atom("C", 1.3 * i, 0.75 + 1.5 * j);
+        comb.bond(side, next, IBond.Order.SINGLE);
+        side = next;
+      }
+    }
+    return comb.saturate();
+  }
+
+
+  /**
+   * Creates a dendritic tree: every node branches into two carbon chains of
+   * the given length, up to the given number of generations.
+   *
+   * @param generations
+   *          Number of branching generations.
+   * @param spacer
+   *          Number of carbon atoms between two branch points.
+   *
+   * @return The tree with about spacer times 2^(generations + 1) atoms.
+   */
+  public static IAtomContainer tree(final int generations, final int spacer) {
+    final SyntheticMolecules tree = new SyntheticMolecules();
+    List<IAtom> nodes = new ArrayList<>();
+    nodes.add(tree.atom("C", 0, 0));
+    for (int g = 0; g < generations; g++) {
+      final List<IAtom> next = new ArrayList<>(2 * nodes.size());
+      for (final IAtom node : nodes) {
+        for (int side = -1; side <= 1; side += 2) {
+          IAtom end = node;
+          for (int j = 0; j < spacer; j++) {
+            final IAtom atom = tree.atom(
+                "C", end.getPoint2d().x + side * (generations - g),
+                end.getPoint2d().y + 1);
+            tree.bond(end, atom, IBond.Order.SINGLE);
+            end = atom;
+          }
+          next.add(end);
+        }
+      }
+      nodes = next;
+    }
+    return tree.saturate();
+  }
+
+
+  /**
+   * Creates a mixed system: benzene rings carrying a hydroxy group, linked
+   * by propanone chains into a row.
+   *
+   * @param units
+   *          Number of rings.
+   *
+   * @return The system with eleven heavy atoms per linked unit.
+   */
+  public static IAtomContainer mixed(final int units) {
+    final SyntheticMolecules mixed = new SyntheticMolecules();
+    IAtom previous = null;
+    for (int i = 0; i < units; i++) {
+      final double x = 7.0 * i;
+      final IAtom[] ring = new IAtom[6];
+      for (int k = 0; k < 6; k++) {
+        final double angle = Math.PI / 3 * k;
+        ring[k] = mixed.atom("C", x + Math.cos(angle), Math.sin(angle));
+      }
+      for (int k = 0; k < 6; k++) {
+        mixed.bond(ring[k], ring[(k + 1) % 6],
+                   k % 2 == 0 ? IBond.Order.DOUBLE : IBond.Order.SINGLE);
+      }
+      if (previous != null) {
+        mixed.bond(previous, ring[3], IBond.Order.SINGLE);
+      }
+      final IAtom oxygen = mixed.atom("O", x, -2);
+      mixed.bond(ring[5], oxygen, IBond.Order.SINGLE);
+      previous = ring[0];
+      for (int j = 1; i < units - 1 && j <= 3; j++) {
+        final IAtom atom = mixed.atom("C", x + 1 + 1.2 * j, 0.5 * (j % 2));
+        mixed.bond(previous, atom, IBond.Order.SINGLE);
+        previous = atom;
+        if (j == 3) {
+          mixed.bond(atom, mixed.atom("O", atom.getPoint2d().x, 1.5),
+                     IBond.Order.DOUBLE);
+        }
+      }
+    }
+    return mixed.saturate();
+  }
+
+
+  /**
+   * Sets the implicit hydrogen counts so that every atom has its standard
+   * valence.
+   *
+   * @return The finished molecule.
+   */
+  private IAtomContainer saturate() {
+    for (final IAtom atom : this.molecule.atoms()) {
+      int valence = 0;
+      for (final IBond bond : this.molecule.getConnectedBondsList(atom)) {
+        valence += bond.getOrder().numeric();
+      }
+      final Integer standard = VALENCES.get(atom.getSymbol());
+      atom.setImplicitHydrogenCount(
+          standard == null ? 0 : Math.max(0, standard - valence));
+    }
+    return this.molecule;
+  }
+
+
+  /**
+   * Adds the bonds of a hexagon of the brick wall grid.
+   *
+   * @param x
+   *          Column of the lower left atom.
+   * @param y
+   *          Row of the lower left atom.
+   */
+  private void hexagon(final int x, final int y) {
+    this.gridBond(x, y, x + 1, y);
+    this.gridBond(x + 1, y, x + 2, y);
+    this.gridBond(x + 2, y, x + 2, y + 1);
+    this.gridBond(x + 2, y + 1, x + 1, y + 1);
+    this.gridBond(x + 1, y + 1, x, y + 1);
+    this.gridBond(x, y + 1, x, y);
+  }
+
+
+  /**
+   * Adds a bond between two grid positions, creating atoms as necessary.
+   *
+   * @param x1
+   *          Column of the first atom.
+   * @param y1
+   *          Row of the first atom.
+   * @param x2
+   *          Column of the second atom.
+   * @param y2
+   *          Row of the second atom.
+   */
+  private void gridBond(final int x1, final int y1, final int x2,
+      final int y2) {
+    final IAtom first = this.gridAtom(x1, y1);
+    final IAtom second = this.gridAtom(x2, y2);
+    if (this.molecule.getBond(first, second) == null) {
+      this.bond(first, second, IBond.Order.SINGLE);
+    }
+  }
+
+
+  /**
+   * Returns the carbon atom at a grid position, creating it if necessary.
+   *
+   * @param x
+   *          The column.
+   * @param y
+   *          The row.
+   *
+   * @return The atom.
+   */
+  private IAtom gridAtom(final int x, final int y) {
+    final long key = ((long) x << 32) | y;
+    IAtom atom = this.grid.get(key);
+    if (atom == null) {
+      atom = this.atom("C", 0.866 * x, 1.5 * y + (x + y) % 2 * 0.5);
+      this.grid.put(key, atom);
+    }
+    return atom;
+  }
+
+
+  /**
+   * Adds a new atom.
+   *
+   * @param symbol
+   *          The element symbol.
+   * @param x
+   *          The x coordinate.
+   * @param y
+   *          The y coordinate.
+   *
+   * @return The atom.
+   */
+  private IAtom atom(final String symbol, final double x, final double y) {
+    final IAtom atom = this.molecule.getBuilder().newInstance(
+        IAtom.class, symbol);
+    atom.setID("a" + (this.molecule.getAtomCount() + 1));
+    atom.setPoint2d(new Point2d(x, y));
+    this.molecule.addAtom(atom);
+    return atom;
+  }
+
+
+  /**
+   * Adds a new bond.
+   *
+   * @param first
+   *          The first atom.
+   * @param second
+   *          The second atom.
+   * @param order
+   *          The bond order.
+   *
+   * @return The bond.
+   */
+  private IBond bond(final IAtom first, final IAtom second,
+      final IBond.Order order) {
+    final IBond bond = this.molecule.getBuilder().newInstance(
+        IBond.class, first, second, order);
+    bond.setID("b" + (this.molecule.getBondCount() + 1));
+    this.molecule.addBond(bond);
+    return bond;
+  }
+
+}